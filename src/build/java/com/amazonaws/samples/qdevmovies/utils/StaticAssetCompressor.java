@@ -0,0 +1,83 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a gzip-compressed copy next to each CSS and JavaScript file under a
+ * directory, e.g. {@code movies.css.gz}, so that the resource handler can serve
+ * it to clients that accept gzip without compressing on every request. Run by
+ * the build on the static resources after they are copied to the output
+ * directory. Files that would not shrink are left alone.
+ */
+public final class StaticAssetCompressor {
+
+    private StaticAssetCompressor() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: StaticAssetCompressor <directory>");
+            System.exit(2);
+        }
+        int written = compressAll(Paths.get(args[0]));
+        System.out.println("Precompressed " + written + " static assets in " + args[0]);
+    }
+
+    /**
+     * Compresses every asset under the directory, replacing stale copies.
+     * @return the number of compressed copies written
+     */
+    public static int compressAll(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        List<Path> assets;
+        try (Stream<Path> files = Files.walk(directory)) {
+            assets = files.filter(StaticAssetCompressor::isAsset).collect(Collectors.toList());
+        }
+        int written = 0;
+        for (Path asset : assets) {
+            Path compressed = asset.resolveSibling(asset.getFileName() + ".gz");
+            byte[] original = Files.readAllBytes(asset);
+            byte[] gzipped = gzip(original);
+            if (gzipped.length < original.length) {
+                Files.write(compressed, gzipped);
+                written++;
+            } else {
+                Files.deleteIfExists(compressed);
+            }
+        }
+        return written;
+    }
+
+    private static boolean isAsset(Path path) {
+        String name = path.getFileName().toString();
+        return Files.isRegularFile(path) && (name.endsWith(".css") || name.endsWith(".js"));
+    }
+
+    static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 3 + 32);
+        try (OutputStream gzip = new BestCompressionGzipOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    // Compression time is paid once per build, so the smallest output is worth it
+    private static final class BestCompressionGzipOutputStream extends GZIPOutputStream {
+        BestCompressionGzipOutputStream(OutputStream out) throws IOException {
+            super(out);
+            def.setLevel(Deflater.BEST_COMPRESSION);
+        }
+    }
+}
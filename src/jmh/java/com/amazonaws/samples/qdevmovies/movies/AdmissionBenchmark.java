@@ -0,0 +1,78 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead {@link ReviewAdmission} adds to a review submission: admitting and
+ * releasing one client, one of thousands of clients, and the same client from
+ * four threads at once, and refusing a client whose bucket is empty.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dlog4j2.configurationFile=log4j2-benchmark.xml"})
+public class AdmissionBenchmark {
+
+    private static final int CLIENTS = 4096;
+
+    // A refill every 27 ns and a burst of a minute's worth, so every submission is admitted
+    private ReviewAdmission admitting;
+    private ReviewAdmission limiting;
+    private final String[] clients = new String[CLIENTS];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        admitting = new ReviewAdmission(Integer.MAX_VALUE, Integer.MAX_VALUE, 100_000, 1_000_000, System::nanoTime);
+        limiting = new ReviewAdmission(1, 1, 100_000, 64, System::nanoTime);
+        for (int i = 0; i < CLIENTS; i++) {
+            clients[i] = "10.0." + (i >> 8) + "." + (i & 0xFF);
+            admitting.tryAdmit(clients[i]);
+            admitting.release();
+        }
+        limiting.tryAdmit("10.1.0.1");
+        limiting.release();
+    }
+
+    @Benchmark
+    public ReviewAdmission.Result admitOneClient() {
+        ReviewAdmission.Result result = admitting.tryAdmit("10.0.0.1");
+        admitting.release();
+        return result;
+    }
+
+    @Benchmark
+    public ReviewAdmission.Result admitManyClients() {
+        ReviewAdmission.Result result = admitting.tryAdmit(clients[next++ & (CLIENTS - 1)]);
+        admitting.release();
+        return result;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ReviewAdmission.Result admitOneClientContended() {
+        ReviewAdmission.Result result = admitting.tryAdmit("10.0.0.1");
+        admitting.release();
+        return result;
+    }
+
+    @Benchmark
+    public ReviewAdmission.Result refuseRateLimitedClient() {
+        return limiting.tryAdmit("10.1.0.1");
+    }
+}
@@ -0,0 +1,126 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Runs the benchmarks with the GC profiler and compares each result with the
+ * stored baseline. Exits with status 1 if a benchmark became slower than the
+ * baseline by more than {@code benchmark.time-tolerance} (a fraction, 1.0
+ * allowing twice the time) or allocates more per operation than
+ * {@code benchmark.alloc-tolerance} allows. Allocation per operation barely
+ * depends on the machine, so its tolerance is much tighter than the one for
+ * time. With {@code benchmark.update-baseline=true} the results replace
+ * their entries in the baseline instead.
+ */
+public class BenchmarkRunner {
+    // Allows for noise in small allocation figures
+    private static final double ALLOC_SLACK_BYTES = 16;
+
+    public static class Baseline {
+        public double score;
+        public String unit;
+        public double allocBytesPerOp;
+    }
+
+    public static void main(String[] args) throws Exception {
+        File baselineFile = new File(System.getProperty("benchmark.baseline", "src/jmh/baseline.json"));
+        boolean updateBaseline = Boolean.getBoolean("benchmark.update-baseline");
+        double timeTolerance = Double.parseDouble(System.getProperty("benchmark.time-tolerance", "1.0"));
+        double allocTolerance = Double.parseDouble(System.getProperty("benchmark.alloc-tolerance", "0.1"));
+
+        Options options = new OptionsBuilder()
+            .include(System.getProperty("benchmark.include", ".*"))
+            .addProfiler(GCProfiler.class)
+            .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        Map<String, Baseline> current = new TreeMap<>();
+        for (RunResult result : results) {
+            Baseline entry = new Baseline();
+            entry.score = result.getPrimaryResult().getScore();
+            entry.unit = result.getPrimaryResult().getScoreUnit();
+            entry.allocBytesPerOp = allocationPerOp(result);
+            current.put(key(result.getParams()), entry);
+        }
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        Map<String, Baseline> baseline = baselineFile.exists()
+            ? mapper.readValue(baselineFile, mapper.getTypeFactory().constructMapType(TreeMap.class, String.class, Baseline.class))
+            : new TreeMap<>();
+        if (updateBaseline) {
+            // Benchmarks that did not run keep their previous baseline
+            baseline.putAll(current);
+            mapper.writeValue(baselineFile, baseline);
+            System.out.println("Updated " + current.size() + " results in baseline " + baselineFile);
+            return;
+        }
+        if (baseline.isEmpty()) {
+            System.out.println("No baseline at " + baselineFile + ", run with -Dbenchmark.update-baseline=true to create one");
+            return;
+        }
+
+        List<String> regressions = new ArrayList<>();
+        System.out.println();
+        System.out.printf("%-70s %14s %14s %12s %12s%n", "Benchmark", "Baseline", "Current", "Base B/op", "B/op");
+        for (Map.Entry<String, Baseline> entry : current.entrySet()) {
+            Baseline now = entry.getValue();
+            Baseline before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-70s %14s %14.1f %12s %12.1f%n", entry.getKey(), "-", now.score, "-", now.allocBytesPerOp);
+                continue;
+            }
+            System.out.printf("%-70s %14.1f %14.1f %12.1f %12.1f%n", entry.getKey(), before.score, now.score,
+                before.allocBytesPerOp, now.allocBytesPerOp);
+            if (now.score > before.score * (1 + timeTolerance)) {
+                regressions.add(String.format("%s: %.1f %s, baseline %.1f", entry.getKey(), now.score, now.unit, before.score));
+            }
+            if (before.allocBytesPerOp >= 0
+                    && now.allocBytesPerOp > before.allocBytesPerOp * (1 + allocTolerance) + ALLOC_SLACK_BYTES) {
+                regressions.add(String.format("%s: %.1f B/op, baseline %.1f", entry.getKey(),
+                    now.allocBytesPerOp, before.allocBytesPerOp));
+            }
+        }
+        if (!regressions.isEmpty()) {
+            System.out.println();
+            System.out.println("Benchmark regressions against " + baselineFile + ":");
+            regressions.forEach(regression -> System.out.println("  " + regression));
+            System.exit(1);
+        }
+    }
+
+    private static String key(BenchmarkParams params) {
+        StringBuilder key = new StringBuilder(params.getBenchmark().replace(BenchmarkRunner.class.getPackage().getName() + ".", ""));
+        for (String name : params.getParamsKeys()) {
+            key.append(' ').append(name).append('=').append(params.getParam(name));
+        }
+        return key.toString();
+    }
+
+    /**
+     * @return bytes allocated per operation as measured by the GC profiler, or -1 if unavailable
+     */
+    private static double allocationPerOp(RunResult result) {
+        Map<String, Result> secondary = result.getSecondaryResults();
+        for (String name : new String[] {"gc.alloc.rate.norm", "·gc.alloc.rate.norm"}) {
+            if (secondary.containsKey(name)) {
+                return secondary.get(name).getScore();
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,102 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.ui.ExtendedModelMap;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups and detail page assembly against generated catalogs of 10, 10k and
+ * 1M movies. Each invocation looks up the next of a fixed set of random IDs,
+ * a quarter of which have reviews.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Dlog4j2.configurationFile=log4j2-benchmark.xml"})
+public class CatalogBenchmark {
+
+    @Param({"10", "10000", "1000000"})
+    int catalogSize;
+
+    private MovieService movieService;
+    private ReviewService reviewService;
+    private RecommendationService recommendationService;
+    private MoviesController controller;
+    private MockHttpSession session;
+    private long[] ids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        movieService = new MovieService(SyntheticCatalog.movies(catalogSize));
+        reviewService = new ReviewService(SyntheticCatalog.reviews(catalogSize));
+        UserReviewStore userReviewStore = new SessionUserReviewStore();
+
+        controller = new MoviesController();
+        inject("movieService", movieService);
+        inject("userReviewStore", userReviewStore);
+        inject("ratingService", new RatingService(movieService, reviewService, userReviewStore));
+        recommendationService = new RecommendationService(movieService, reviewService, userReviewStore,
+            new RenderedPageCache(1000, 16 << 20), 6);
+        inject("recommendationService", recommendationService);
+        inject("reviewIndex", new ReviewIndex(reviewService, userReviewStore));
+        session = new MockHttpSession();
+
+        Random random = new Random(42);
+        ids = new long[1024];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = 1 + random.nextInt(catalogSize);
+        }
+    }
+
+    private void inject(String fieldName, Object value) throws Exception {
+        Field field = MoviesController.class.getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(controller, value);
+    }
+
+    private long nextId() {
+        return ids[next++ & (ids.length - 1)];
+    }
+
+    @Benchmark
+    public Optional<Movie> getMovieById() {
+        return movieService.getMovieById(nextId());
+    }
+
+    @Benchmark
+    public List<Review> getReviewsForMovie() {
+        return reviewService.getReviewsForMovie(nextId());
+    }
+
+    @Benchmark
+    public List<Movie> getRecommendations() {
+        return recommendationService.getRecommendations(nextId());
+    }
+
+    @Benchmark
+    public ExtendedModelMap getMovieDetails() {
+        ExtendedModelMap model = new ExtendedModelMap();
+        controller.getMovieDetails(nextId(), null, null, model, session);
+        return model;
+    }
+}
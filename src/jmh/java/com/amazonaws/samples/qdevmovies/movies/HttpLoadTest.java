@@ -0,0 +1,110 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop HTTP load generator for comparing request execution modes
+ * against a running instance. Each client thread sends its next request as
+ * soon as the previous one completes, cycling through the configured paths
+ * over a kept-alive connection. Latencies after the warm-up are recorded in
+ * HdrHistograms.
+ *
+ * <p>Settings are system properties: {@code loadtest.url} (default
+ * http://localhost:8080), {@code loadtest.paths} (comma separated),
+ * {@code loadtest.clients}, {@code loadtest.warmup-seconds} and
+ * {@code loadtest.duration-seconds}.
+ */
+public class HttpLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = System.getProperty("loadtest.url", "http://localhost:8080");
+        String[] paths = System.getProperty("loadtest.paths", "/movies,/movies/1/details,/api/movies/3,/movies/search?q=heist").split(",");
+        int clients = Integer.getInteger("loadtest.clients", 64);
+        long warmupNanos = TimeUnit.SECONDS.toNanos(Integer.getInteger("loadtest.warmup-seconds", 10));
+        long durationNanos = TimeUnit.SECONDS.toNanos(Integer.getInteger("loadtest.duration-seconds", 30));
+
+        URL[] urls = new URL[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            urls[i] = new URL(baseUrl + paths[i].trim());
+        }
+        long start = System.nanoTime();
+        long measureFrom = start + warmupNanos;
+        long end = measureFrom + durationNanos;
+        AtomicLong errors = new AtomicLong();
+
+        List<Histogram> histograms = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            Histogram histogram = new Histogram(TimeUnit.MINUTES.toNanos(1), 3);
+            histograms.add(histogram);
+            int offset = c;
+            Thread thread = new Thread(() -> {
+                byte[] buffer = new byte[16 * 1024];
+                for (int n = offset; ; n++) {
+                    long sent = System.nanoTime();
+                    if (sent >= end) {
+                        return;
+                    }
+                    boolean ok = request(urls[n % urls.length], buffer);
+                    long received = System.nanoTime();
+                    if (sent >= measureFrom) {
+                        if (ok) {
+                            histogram.recordValue(Math.min(received - sent, histogram.getHighestTrackableValue()));
+                        } else {
+                            errors.incrementAndGet();
+                        }
+                    }
+                }
+            }, "load-client-" + c);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Histogram total = new Histogram(TimeUnit.MINUTES.toNanos(1), 3);
+        for (Histogram histogram : histograms) {
+            total.add(histogram);
+        }
+        double seconds = durationNanos / 1e9;
+        System.out.printf("clients=%d duration=%.0fs requests=%d errors=%d throughput=%.1f req/s%n",
+            clients, seconds, total.getTotalCount(), errors.get(), total.getTotalCount() / seconds);
+        System.out.printf("latency ms: p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f%n",
+            millis(total.getValueAtPercentile(50)), millis(total.getValueAtPercentile(90)),
+            millis(total.getValueAtPercentile(99)), millis(total.getValueAtPercentile(99.9)), millis(total.getMaxValue()));
+    }
+
+    private static boolean request(URL url, byte[] buffer) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(5000);
+            connection.setReadTimeout(30000);
+            int status = connection.getResponseCode();
+            // Reading the whole body lets the connection be reused
+            try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                if (in != null) {
+                    while (in.read(buffer) != -1) {
+                        // discard
+                    }
+                }
+            }
+            return status < 400;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,74 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logging cost per movie details request, writing to a file. The per-request
+ * variants log the two INFO lines the controller used to log for every
+ * request; the sampled variant is the {@link RequestLoggingFilter} at its
+ * default rate of one request in 100.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LoggingBenchmark {
+    private static final String SYNC = "-Dlog4j2.configurationFile=log4j2-bench-sync.xml";
+    private static final String ASYNC = "-Dlog4j2.configurationFile=log4j2-bench-async.xml";
+
+    private final Logger logger = LogManager.getLogger(MoviesController.class);
+    private final RequestLoggingFilter requestLoggingFilter = new RequestLoggingFilter(100);
+    private final Long movieId = 7L;
+    private final int reviewCount = 3;
+
+    private void logPerRequest() {
+        logger.info("Fetching details for movie ID: {}", movieId);
+        logger.info("Retrieved {} user reviews for movie {}", reviewCount, movieId);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = SYNC)
+    public void syncPerRequest() {
+        logPerRequest();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {ASYNC, "-Dlog4j2.asyncQueueFullPolicy=Default"})
+    public void asyncBlockingPerRequest() {
+        logPerRequest();
+    }
+
+    /**
+     * The application's async setup, which drops INFO events while the ring buffer is full.
+     */
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = ASYNC)
+    public void asyncDiscardingPerRequest() {
+        logPerRequest();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = SYNC)
+    public void syncSampled() {
+        requestLoggingFilter.log("GET", "/movies/7/details", 200, System.nanoTime());
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = ASYNC)
+    public void asyncSampled() {
+        requestLoggingFilter.log("GET", "/movies/7/details", 200, System.nanoTime());
+    }
+}
@@ -0,0 +1,75 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.RatingFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request helpers that do not depend on the catalog size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dlog4j2.configurationFile=log4j2-benchmark.xml"})
+public class ReviewBenchmark {
+
+    private final ReviewRequest validReview = new ReviewRequest("Alice", 4,
+        "A gripping story with wonderful performances from the whole cast.");
+    private final ReviewRequest shortReview = new ReviewRequest("Bob", 3, "Too short");
+    private final ReviewRequest longReview = new ReviewRequest("Carol", 5,
+        "An ambitious, sprawling epic that rewards patience. The first hour builds the world slowly, "
+        + "the second hour pays off every thread, and the final act is among the most moving I have seen "
+        + "in years. The score swells at exactly the right moments and the cast never hits a false note.");
+    // The rules the application runs with by default
+    private final ReviewValidator configuredValidator = new ReviewValidator(2000, 3,
+        Arrays.asList("buy now", "click here", "free money", "limited offer", "work from home", "earn cash",
+            "casino bonus", "crypto giveaway"));
+    private double rating = 4.5;
+
+    @Benchmark
+    public String validateValidReview() {
+        return ReviewValidator.validateReview(validReview);
+    }
+
+    @Benchmark
+    public String validateShortReview() {
+        return ReviewValidator.validateReview(shortReview);
+    }
+
+    @Benchmark
+    public String validateLongReview() {
+        return ReviewValidator.validateReview(longReview);
+    }
+
+    @Benchmark
+    public String validateValidReviewWithRules() {
+        return configuredValidator.validate(validReview);
+    }
+
+    @Benchmark
+    public String validateLongReviewWithRules() {
+        return configuredValidator.validate(longReview);
+    }
+
+    @Benchmark
+    public String formatRating() {
+        return RatingFormat.format(rating);
+    }
+
+    @Benchmark
+    public String ratingStars() {
+        return RatingFormat.stars(rating);
+    }
+}
@@ -0,0 +1,62 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search latency against a generated catalog of 100k movies, which search is
+ * meant to answer within a millisecond: a term in a handful of movies, a term
+ * in the reviews of a quarter of them, a phrase, and a term in every movie.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Dlog4j2.configurationFile=log4j2-benchmark.xml"})
+public class SearchBenchmark {
+
+    @Param({"100000"})
+    int catalogSize;
+
+    private SearchIndex searchIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        searchIndex = new SearchIndex(new MovieService(SyntheticCatalog.movies(catalogSize)),
+            new ReviewService(SyntheticCatalog.reviews(catalogSize)), new SessionUserReviewStore());
+    }
+
+    @Benchmark
+    public List<Long> rareTerm() {
+        return searchIndex.search("54321");
+    }
+
+    @Benchmark
+    public List<Long> reviewTerm() {
+        return searchIndex.search("masterpiece");
+    }
+
+    @Benchmark
+    public List<Long> phrase() {
+        return searchIndex.search("\"middle act\"");
+    }
+
+    @Benchmark
+    public List<Long> termInEveryMovie() {
+        return searchIndex.search("movie");
+    }
+}
@@ -0,0 +1,479 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Soak test of the whole application at production scale. It writes a
+ * synthetic catalog and mock reviews of the configured size as JSON, boots
+ * {@link MoviesApplication} on them on a free port, and drives a mix of listing
+ * pages, detail pages and review submissions at a fixed request rate.
+ *
+ * <p>The workload is open-loop: request {@code i} is due at {@code start + i / rate}
+ * whether or not earlier requests have completed, and its latency is measured
+ * from that time. A stalled server therefore shows as the latency of every
+ * request that should have been sent during the stall, instead of as fewer
+ * requests (coordinated omission). The time from actually sending a request to
+ * its response is reported too. Detail pages favour low movie IDs, as a real
+ * audience favours popular titles. Requests are spread over {@code soak.users}
+ * sessions, each keeping its session cookie, and reviews are submitted under
+ * the session's user.
+ *
+ * <p>After the run it prints throughput, latency percentiles per operation and
+ * the heap and GC activity during the measurement. The application and the load
+ * generator share the JVM, so heap figures include the generator's small share.
+ *
+ * <p>Settings are system properties: {@code soak.movies}, {@code soak.reviews-per-movie},
+ * {@code soak.rate} (requests per second), {@code soak.users}, {@code soak.threads}
+ * (most requests in progress at once), {@code soak.mix} (e.g. {@code list=45,details=45,review=10}),
+ * {@code soak.warmup-seconds}, {@code soak.duration-seconds}, {@code soak.app-args}
+ * (extra application arguments, space separated) and {@code soak.report} (a file
+ * to write the results to as JSON).
+ */
+public class SoakTest {
+
+    enum Operation {
+        list, details, review
+    }
+
+    private static final String[] COMMENTS = {
+        "Gripping from the first scene to the last, with a brilliant cast.",
+        "A slow start but the final act more than makes up for it.",
+        "Beautifully shot, though the story did not quite land for me.",
+        "I would happily watch this again with friends next weekend."
+    };
+
+    public static void main(String[] args) throws Exception {
+        int movies = Integer.getInteger("soak.movies", 100_000);
+        int reviewsPerMovie = Integer.getInteger("soak.reviews-per-movie", 3);
+        int rate = Integer.getInteger("soak.rate", 500);
+        int users = Integer.getInteger("soak.users", 1000);
+        int threads = Integer.getInteger("soak.threads", 200);
+        Operation[] mix = parseMix(System.getProperty("soak.mix", "list=45,details=45,review=10"));
+        long warmupNanos = TimeUnit.SECONDS.toNanos(Integer.getInteger("soak.warmup-seconds", 10));
+        long durationNanos = TimeUnit.SECONDS.toNanos(Integer.getInteger("soak.duration-seconds", 60));
+        String appArgs = System.getProperty("soak.app-args", "").trim();
+        String report = System.getProperty("soak.report", "").trim();
+
+        Path directory = Files.createTempDirectory("soak");
+        try {
+            long generateStart = System.nanoTime();
+            Path moviesFile = directory.resolve("movies.json");
+            Path reviewsFile = directory.resolve("mock-reviews.json");
+            SyntheticCatalog.writeMovies(moviesFile, SyntheticCatalog.movies(movies));
+            SyntheticCatalog.writeReviews(reviewsFile, SyntheticCatalog.reviews(movies, reviewsPerMovie));
+            System.out.printf("Generated %d movies (%d MB) and reviews (%d MB) in %d ms%n", movies,
+                Files.size(moviesFile) >> 20, Files.size(reviewsFile) >> 20,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - generateStart));
+
+            // Passed as arguments to take precedence over application.yml; soak.app-args may override them
+            Map<String, String> properties = new LinkedHashMap<>();
+            properties.put("server.port", "0");
+            properties.put("catalog.path", moviesFile.toString());
+            properties.put("reviews.mock-path", reviewsFile.toString());
+            properties.put("catalog.snapshot-path", directory.resolve("catalog.snapshot").toString());
+            properties.put("reviews.log.path", directory.resolve("reviews.log").toString());
+            // Every request comes from this host, so a per-client limit would throttle the whole test
+            properties.put("reviews.rate-limit.requests-per-minute", "0");
+            properties.put("logging.config", "classpath:log4j2-benchmark.xml");
+            properties.put("logging.level.com.amazonaws.samples.qdevmovies", "warn");
+            // Background threads stop after Tomcat, which would warn about each of them on shutdown
+            properties.put("logging.level.org.apache.catalina.loader", "error");
+            if (!appArgs.isEmpty()) {
+                for (String arg : appArgs.split("\\s+")) {
+                    String[] keyAndValue = arg.replaceFirst("^--", "").split("=", 2);
+                    properties.put(keyAndValue[0], keyAndValue.length > 1 ? keyAndValue[1] : "");
+                }
+            }
+            List<String> applicationArgs = new ArrayList<>();
+            for (Map.Entry<String, String> property : properties.entrySet()) {
+                applicationArgs.add("--" + property.getKey() + "=" + property.getValue());
+            }
+            long bootStart = System.nanoTime();
+            try (ConfigurableApplicationContext application = new SpringApplicationBuilder(MoviesApplication.class)
+                    .run(applicationArgs.toArray(new String[0]))) {
+                int port = ((WebServerApplicationContext) application).getWebServer().getPort();
+                System.out.printf("Started on port %d in %d ms with %s%n", port,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - bootStart), applicationArgs);
+
+                Map<String, Object> results = new Workload("http://localhost:" + port, movies, rate, users, threads,
+                    mix, warmupNanos, durationNanos).run();
+                results.put("settings", settings(movies, reviewsPerMovie, rate, users, threads, mix, warmupNanos,
+                    durationNanos, applicationArgs));
+                if (!report.isEmpty()) {
+                    new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(Paths.get(report).toFile(), results);
+                    System.out.println("Wrote " + report);
+                }
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * @return each operation repeated by its weight, to pick from at random
+     */
+    static Operation[] parseMix(String mix) {
+        List<Operation> weighted = new ArrayList<>();
+        for (String part : mix.split(",")) {
+            String[] nameAndWeight = part.trim().split("=");
+            Operation operation = Operation.valueOf(nameAndWeight[0].trim());
+            int weight = Integer.parseInt(nameAndWeight[1].trim());
+            for (int i = 0; i < weight; i++) {
+                weighted.add(operation);
+            }
+        }
+        if (weighted.isEmpty()) {
+            throw new IllegalArgumentException("Empty workload mix: " + mix);
+        }
+        return weighted.toArray(new Operation[0]);
+    }
+
+    private static Map<String, Object> settings(int movies, int reviewsPerMovie, int rate, int users, int threads,
+                                                Operation[] mix, long warmupNanos, long durationNanos,
+                                                List<String> applicationArgs) {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("movies", movies);
+        settings.put("reviewsPerMovie", reviewsPerMovie);
+        settings.put("rate", rate);
+        settings.put("users", users);
+        settings.put("threads", threads);
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (Operation operation : mix) {
+            weights.merge(operation.name(), 1, Integer::sum);
+        }
+        settings.put("mix", weights);
+        settings.put("warmupSeconds", TimeUnit.NANOSECONDS.toSeconds(warmupNanos));
+        settings.put("durationSeconds", TimeUnit.NANOSECONDS.toSeconds(durationNanos));
+        settings.put("applicationArgs", applicationArgs);
+        return settings;
+    }
+
+    private static final class Workload {
+        private final String baseUrl;
+        private final int movies;
+        private final long intervalNanos;
+        private final int threads;
+        private final Operation[] mix;
+        private final long warmupNanos;
+        private final long durationNanos;
+        private final AtomicReferenceArray<String> sessionCookies;
+        private final AtomicLong nextRequest = new AtomicLong();
+        private final AtomicLong[] errors = counters();
+        private final AtomicLong[] throttled = counters();
+        // Requests sent over a millisecond after they were due because every client thread was busy
+        private final AtomicLong late = new AtomicLong();
+
+        Workload(String baseUrl, int movies, int rate, int users, int threads, Operation[] mix,
+                 long warmupNanos, long durationNanos) {
+            this.baseUrl = baseUrl;
+            this.movies = movies;
+            this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+            this.threads = threads;
+            this.mix = mix;
+            this.warmupNanos = warmupNanos;
+            this.durationNanos = durationNanos;
+            this.sessionCookies = new AtomicReferenceArray<>(users);
+        }
+
+        private static AtomicLong[] counters() {
+            AtomicLong[] counters = new AtomicLong[Operation.values().length];
+            for (int i = 0; i < counters.length; i++) {
+                counters[i] = new AtomicLong();
+            }
+            return counters;
+        }
+
+        Map<String, Object> run() throws InterruptedException {
+            long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+            long measureFrom = start + warmupNanos;
+            long end = measureFrom + durationNanos;
+
+            // Per thread and operation, merged at the end: latency from when the request was due, and service time
+            Histogram[][] latencies = new Histogram[threads][];
+            Histogram[][] serviceTimes = new Histogram[threads][];
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Histogram[] latency = histograms();
+                Histogram[] service = histograms();
+                latencies[t] = latency;
+                serviceTimes[t] = service;
+                Thread worker = new Thread(() -> work(start, measureFrom, end, latency, service), "soak-client-" + t);
+                worker.setDaemon(true);
+                workers.add(worker);
+                worker.start();
+            }
+
+            LockSupport.parkNanos(measureFrom - System.nanoTime());
+            HeapStats heap = new HeapStats();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            Map<String, Object> heapResults = heap.finish();
+
+            double seconds = durationNanos / 1e9;
+            long targetRate = TimeUnit.SECONDS.toNanos(1) / intervalNanos;
+            System.out.printf("target=%d req/s measured=%.0fs late starts=%d%n", targetRate, seconds, late.get());
+            Histogram allLatencies = histogram();
+            Histogram allServiceTimes = histogram();
+            long allErrors = 0;
+            long allThrottled = 0;
+            Map<String, Object> operations = new LinkedHashMap<>();
+            for (Operation operation : Operation.values()) {
+                Histogram latency = histogram();
+                Histogram service = histogram();
+                for (int t = 0; t < threads; t++) {
+                    latency.add(latencies[t][operation.ordinal()]);
+                    service.add(serviceTimes[t][operation.ordinal()]);
+                }
+                long operationErrors = errors[operation.ordinal()].get();
+                long operationThrottled = throttled[operation.ordinal()].get();
+                allLatencies.add(latency);
+                allServiceTimes.add(service);
+                allErrors += operationErrors;
+                allThrottled += operationThrottled;
+                if (latency.getTotalCount() + operationErrors + operationThrottled > 0) {
+                    operations.put(operation.name(), operationResults(latency, service, operationErrors, operationThrottled, seconds));
+                    print(operation.name(), latency, service, operationErrors, operationThrottled, seconds);
+                }
+            }
+            print("total", allLatencies, allServiceTimes, allErrors, allThrottled, seconds);
+            System.out.printf("heap: used after=%d MB, peak=%d MB, gc collections=%d, gc time=%d ms%n",
+                heapResults.get("usedAfterMb"), heapResults.get("peakMb"), heapResults.get("gcCollections"),
+                heapResults.get("gcTimeMs"));
+
+            Map<String, Object> results = new LinkedHashMap<>();
+            results.put("targetRate", targetRate);
+            results.put("lateStarts", late.get());
+            results.put("total", operationResults(allLatencies, allServiceTimes, allErrors, allThrottled, seconds));
+            results.put("operations", operations);
+            results.put("heap", heapResults);
+            return results;
+        }
+
+        private void work(long start, long measureFrom, long end, Histogram[] latency, Histogram[] service) {
+            byte[] buffer = new byte[16 * 1024];
+            while (true) {
+                long index = nextRequest.getAndIncrement();
+                long due = start + index * intervalNanos;
+                if (due >= end) {
+                    return;
+                }
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                } else if (wait < -TimeUnit.MILLISECONDS.toNanos(1) && due >= measureFrom) {
+                    late.incrementAndGet();
+                }
+                SplittableRandom random = new SplittableRandom(index);
+                Operation operation = mix[random.nextInt(mix.length)];
+                long sent = System.nanoTime();
+                int status = send(operation, random, buffer);
+                long received = System.nanoTime();
+                if (due < measureFrom) {
+                    continue;
+                }
+                if (status == 429) {
+                    throttled[operation.ordinal()].incrementAndGet();
+                } else if (status < 0 || status >= 400) {
+                    errors[operation.ordinal()].incrementAndGet();
+                } else {
+                    Histogram histogram = latency[operation.ordinal()];
+                    histogram.recordValue(Math.min(received - due, histogram.getHighestTrackableValue()));
+                    service[operation.ordinal()].recordValue(Math.min(received - sent, histogram.getHighestTrackableValue()));
+                }
+            }
+        }
+
+        /**
+         * @return the response status, or -1 if the request failed
+         */
+        private int send(Operation operation, SplittableRandom random, byte[] buffer) {
+            int user = random.nextInt(sessionCookies.length());
+            try {
+                HttpURLConnection connection;
+                switch (operation) {
+                    case list:
+                        // Half of the listing requests scroll on from a random movie
+                        connection = open(random.nextBoolean() ? "/movies"
+                            : "/movies/page?after=" + (1 + random.nextInt(movies)), user);
+                        break;
+                    case details:
+                        connection = open("/movies/" + popularMovie(random) + "/details", user);
+                        break;
+                    default:
+                        connection = open("/movies/" + popularMovie(random) + "/details", user);
+                        connection.setRequestMethod("POST");
+                        connection.setDoOutput(true);
+                        connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+                        String form = "userName=" + URLEncoder.encode("Soak User " + user, "UTF-8")
+                            + "&rating=" + (1 + random.nextInt(5))
+                            + "&comment=" + URLEncoder.encode(COMMENTS[random.nextInt(COMMENTS.length)], "UTF-8");
+                        try (OutputStream out = connection.getOutputStream()) {
+                            out.write(form.getBytes(StandardCharsets.UTF_8));
+                        }
+                        break;
+                }
+                int status = connection.getResponseCode();
+                String cookie = connection.getHeaderField("Set-Cookie");
+                if (cookie != null && cookie.startsWith("JSESSIONID=")) {
+                    sessionCookies.set(user, cookie.substring(0, cookie.indexOf(';') > 0 ? cookie.indexOf(';') : cookie.length()));
+                }
+                // Reading the whole body lets the connection be reused
+                try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                    if (in != null) {
+                        while (in.read(buffer) != -1) {
+                            // discard
+                        }
+                    }
+                }
+                return status;
+            } catch (IOException e) {
+                return -1;
+            }
+        }
+
+        private HttpURLConnection open(String path, int user) throws IOException {
+            HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+            connection.setInstanceFollowRedirects(false);
+            connection.setConnectTimeout(5000);
+            connection.setReadTimeout(60000);
+            String cookie = sessionCookies.get(user);
+            if (cookie != null) {
+                connection.setRequestProperty("Cookie", cookie);
+            }
+            return connection;
+        }
+
+        // Cubing a uniform value puts half of the requests on the first eighth of the catalog
+        private int popularMovie(SplittableRandom random) {
+            double r = random.nextDouble();
+            return 1 + (int) (r * r * r * movies);
+        }
+    }
+
+    private static Histogram histogram() {
+        return new Histogram(TimeUnit.MINUTES.toNanos(5), 3);
+    }
+
+    private static Histogram[] histograms() {
+        Histogram[] histograms = new Histogram[Operation.values().length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = histogram();
+        }
+        return histograms;
+    }
+
+    private static Map<String, Object> operationResults(Histogram latency, Histogram service, long errors,
+                                                        long throttled, double seconds) {
+        Map<String, Object> results = new LinkedHashMap<>();
+        results.put("requests", latency.getTotalCount());
+        results.put("errors", errors);
+        results.put("throttled", throttled);
+        results.put("throughput", latency.getTotalCount() / seconds);
+        results.put("latencyMs", percentiles(latency));
+        results.put("serviceTimeMs", percentiles(service));
+        return results;
+    }
+
+    private static Map<String, Double> percentiles(Histogram histogram) {
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        percentiles.put("p50", millis(histogram.getValueAtPercentile(50)));
+        percentiles.put("p90", millis(histogram.getValueAtPercentile(90)));
+        percentiles.put("p99", millis(histogram.getValueAtPercentile(99)));
+        percentiles.put("p99.9", millis(histogram.getValueAtPercentile(99.9)));
+        percentiles.put("max", millis(histogram.getMaxValue()));
+        return percentiles;
+    }
+
+    private static void print(String name, Histogram latency, Histogram service, long errors, long throttled, double seconds) {
+        System.out.printf("%-8s requests=%d errors=%d throttled=%d throughput=%.1f req/s%n",
+            name, latency.getTotalCount(), errors, throttled, latency.getTotalCount() / seconds);
+        System.out.printf("%-8s latency ms: p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f (service time p50=%.2f p99=%.2f)%n",
+            "", millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(90)),
+            millis(latency.getValueAtPercentile(99)), millis(latency.getValueAtPercentile(99.9)),
+            millis(latency.getMaxValue()), millis(service.getValueAtPercentile(50)), millis(service.getValueAtPercentile(99)));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    /**
+     * Heap and collector activity from its creation until {@link #finish()}.
+     */
+    private static final class HeapStats {
+        private final long gcCount;
+        private final long gcTime;
+
+        HeapStats() {
+            long count = 0;
+            long time = 0;
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                count += Math.max(0, collector.getCollectionCount());
+                time += Math.max(0, collector.getCollectionTime());
+            }
+            gcCount = count;
+            gcTime = time;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                pool.resetPeakUsage();
+            }
+        }
+
+        Map<String, Object> finish() {
+            long count = 0;
+            long time = 0;
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                count += Math.max(0, collector.getCollectionCount());
+                time += Math.max(0, collector.getCollectionTime());
+            }
+            // The sum of the pools' peaks, which may have been reached at different times
+            long peak = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    peak += pool.getPeakUsage().getUsed();
+                }
+            }
+            Map<String, Object> heap = new LinkedHashMap<>();
+            heap.put("usedAfterMb", ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() >> 20);
+            heap.put("peakMb", peak >> 20);
+            heap.put("maxMb", ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getMax() >> 20);
+            heap.put("gcCollections", count - gcCount);
+            heap.put("gcTimeMs", time - gcTime);
+            return heap;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates reproducible catalogs of any size for benchmarks. Movie IDs run
+ * from 1 to the catalog size; every fourth movie has three reviews, or any
+ * average number of reviews for load tests. Catalogs can be written in the
+ * format of movies.json and mock-reviews.json to run the application on.
+ */
+final class SyntheticCatalog {
+    private static final String[] GENRES = {"Drama", "Crime/Drama", "Action/Crime", "Sci-Fi", "Adventure/Fantasy", "Comedy"};
+    private static final String[] AVATARS = {"👩", "👨", "🧑", "👧", "👦"};
+    private static final String[] COMMENTS = {
+        "An absolute masterpiece with unforgettable performances.",
+        "Solid story, though the middle act drags a little.",
+        "Not for me, but I can see why people love it."
+    };
+
+    private SyntheticCatalog() {
+    }
+
+    static List<Movie> movies(int size) {
+        Random random = new Random(size);
+        int directorCount = Math.max(1, size / 10);
+        List<Movie> movies = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            movies.add(new Movie(i, "Movie " + i, "Director " + random.nextInt(directorCount),
+                1920 + random.nextInt(105), GENRES[random.nextInt(GENRES.length)],
+                "Synthetic description of movie " + i + ".", 80 + random.nextInt(120),
+                Math.round((1 + random.nextDouble() * 4) * 2) / 2.0));
+        }
+        return movies;
+    }
+
+    static Map<Long, List<Review>> reviews(int size) {
+        Random random = new Random(-size);
+        Map<Long, List<Review>> reviews = new LinkedHashMap<>();
+        for (long id = 4; id <= size; id += 4) {
+            List<Review> movieReviews = new ArrayList<>(3);
+            for (int r = 0; r < 3; r++) {
+                movieReviews.add(new Review("User " + r, AVATARS[random.nextInt(AVATARS.length)],
+                    1 + random.nextInt(5), COMMENTS[r]));
+            }
+            reviews.put(id, movieReviews);
+        }
+        return reviews;
+    }
+
+    /**
+     * Returns between none and twice {@code perMovie} reviews for each movie.
+     */
+    static Map<Long, List<Review>> reviews(int size, int perMovie) {
+        Random random = new Random(-size - perMovie);
+        Map<Long, List<Review>> reviews = new LinkedHashMap<>();
+        for (long id = 1; id <= size; id++) {
+            int count = random.nextInt(2 * perMovie + 1);
+            if (count == 0) {
+                continue;
+            }
+            List<Review> movieReviews = new ArrayList<>(count);
+            for (int r = 0; r < count; r++) {
+                movieReviews.add(new Review("User " + random.nextInt(Math.max(1, size)), AVATARS[random.nextInt(AVATARS.length)],
+                    1 + random.nextInt(5), COMMENTS[random.nextInt(COMMENTS.length)]));
+            }
+            reviews.put(id, movieReviews);
+        }
+        return reviews;
+    }
+
+    static void writeMovies(Path file, List<Movie> movies) throws IOException {
+        try (JsonGenerator json = new JsonFactory().createGenerator(file.toFile(), JsonEncoding.UTF8)) {
+            json.writeStartArray();
+            for (Movie movie : movies) {
+                json.writeStartObject();
+                json.writeNumberField("id", movie.getId());
+                json.writeStringField("movieName", movie.getMovieName());
+                json.writeStringField("director", movie.getDirector());
+                json.writeNumberField("year", movie.getYear());
+                json.writeStringField("genre", movie.getGenre());
+                json.writeStringField("description", movie.getDescription());
+                json.writeNumberField("duration", movie.getDuration());
+                json.writeNumberField("imdbRating", movie.getImdbRating());
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        }
+    }
+
+    static void writeReviews(Path file, Map<Long, List<Review>> reviews) throws IOException {
+        try (JsonGenerator json = new JsonFactory().createGenerator(file.toFile(), JsonEncoding.UTF8)) {
+            json.writeStartObject();
+            for (Map.Entry<Long, List<Review>> entry : reviews.entrySet()) {
+                json.writeArrayFieldStart(Long.toString(entry.getKey()));
+                for (Review review : entry.getValue()) {
+                    json.writeStartObject();
+                    json.writeStringField("userName", review.getUserName());
+                    json.writeStringField("avatarEmoji", review.getAvatarEmoji());
+                    json.writeNumberField("rating", review.getRating());
+                    json.writeStringField("comment", review.getComment());
+                    json.writeEndObject();
+                }
+                json.writeEndArray();
+            }
+            json.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Watches the file configured with {@code catalog.path} and reloads the
+ * catalog when it changes. Changes are debounced by
+ * {@code catalog.reload.debounce-ms} so that a file written in several steps
+ * is read once, after the last write.
+ *
+ * <p>The new catalog and its indexes are built on the watcher thread and then
+ * swapped in, so requests are never blocked and each one sees either the old
+ * or the new catalog. A catalog that fails to load is rejected and the
+ * current one kept. A failure rebuilding what is derived from the catalog is
+ * logged and counted, and the watcher keeps running.
+ */
+@Component
+@ConditionalOnProperty(name = "catalog.reload.enabled", havingValue = "true")
+public class CatalogReloader {
+    private static final Logger logger = LogManager.getLogger(CatalogReloader.class);
+
+    private final MovieService movieService;
+    private final SearchIndex searchIndex;
+    private final RecommendationService recommendations;
+    private final RenderedPageCache pageCache;
+    private final WatchService watchService;
+
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalDurationMs = new LongAdder();
+    private final AtomicLong maxDurationMs = new AtomicLong();
+    private final AtomicLong lastDurationMs = new AtomicLong();
+    private final AtomicLong lastAllocatedBytes = new AtomicLong(-1);
+    private final AtomicLong lastReloadTime = new AtomicLong();
+
+    public CatalogReloader(@Value("${catalog.path:}") String catalogPath,
+                           @Value("${catalog.reload.debounce-ms:500}") long debounceMs,
+                           MovieService movieService, SearchIndex searchIndex,
+                           RecommendationService recommendations, RenderedPageCache pageCache) throws IOException {
+        this.movieService = movieService;
+        this.searchIndex = searchIndex;
+        this.recommendations = recommendations;
+        this.pageCache = pageCache;
+        if (catalogPath.isEmpty()) {
+            // The bundled catalog is part of the application and cannot change
+            logger.warn("Catalog reload is enabled but catalog.path is not set, not watching");
+            this.watchService = null;
+            return;
+        }
+        Path file = Paths.get(catalogPath).toAbsolutePath();
+        this.watchService = FileSystems.getDefault().newWatchService();
+        // Watching the directory also catches the file being replaced by a rename
+        file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        Thread watcher = new Thread(() -> watch(file.getFileName(), debounceMs), "catalog-reload");
+        watcher.setDaemon(true);
+        watcher.start();
+        logger.info("Watching {} for catalog changes", file);
+    }
+
+    private void watch(Path fileName, long debounceMs) {
+        try {
+            while (true) {
+                if (!changed(watchService.take(), fileName)) {
+                    continue;
+                }
+                // Wait until the file has been quiet for the debounce interval
+                WatchKey key;
+                while ((key = watchService.poll(debounceMs, TimeUnit.MILLISECONDS)) != null) {
+                    changed(key, fileName);
+                }
+                try {
+                    reloadNow();
+                } catch (RuntimeException e) {
+                    failures.increment();
+                    logger.error("Catalog reload failed, still watching", e);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            logger.debug("Catalog watcher stopped");
+        }
+    }
+
+    private static boolean changed(WatchKey key, Path fileName) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            changed |= fileName.equals(event.context()) || event.kind() == StandardWatchEventKinds.OVERFLOW;
+        }
+        key.reset();
+        return changed;
+    }
+
+    /**
+     * Reloads the catalog and rebuilds everything derived from it. Each
+     * derived rebuild is attempted even if an earlier one failed.
+     * @return true if the new catalog was swapped in and everything derived from it rebuilt
+     */
+    public boolean reloadNow() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long startAllocated = allocatedBytes(threads);
+        long startTime = System.nanoTime();
+        int movieCount;
+        try {
+            movieCount = movieService.reload();
+        } catch (Exception e) {
+            failures.increment();
+            logger.error("Failed to reload catalog, keeping the current one: {}", e.getMessage());
+            return false;
+        }
+        boolean rebuilt = rebuild("search index", searchIndex::rebuild);
+        rebuilt &= rebuild("recommendations", recommendations::rebuild);
+        rebuilt &= rebuild("page cache", pageCache::invalidateAll);
+        if (!rebuilt) {
+            failures.increment();
+        }
+
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        long endAllocated = allocatedBytes(threads);
+        reloads.increment();
+        totalDurationMs.add(durationMs);
+        maxDurationMs.accumulateAndGet(durationMs, Math::max);
+        lastDurationMs.set(durationMs);
+        lastAllocatedBytes.set(startAllocated < 0 || endAllocated < 0 ? -1 : endAllocated - startAllocated);
+        lastReloadTime.set(System.currentTimeMillis());
+        logger.info("Reloaded catalog with {} movies in {} ms", movieCount, durationMs);
+        return rebuilt;
+    }
+
+    private static boolean rebuild(String name, Runnable rebuild) {
+        try {
+            rebuild.run();
+            return true;
+        } catch (RuntimeException e) {
+            logger.error("Failed to rebuild the {} after a catalog reload", name, e);
+            return false;
+        }
+    }
+
+    /**
+     * Returns the bytes allocated by the current thread so far, or -1 if the JVM cannot tell.
+     */
+    private static long allocatedBytes(ThreadMXBean threads) {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+            if (sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled()) {
+                return sunThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("reloads", reloads.sum());
+        stats.put("failures", failures.sum());
+        stats.put("movies", (long) movieService.getAllMovies().size());
+        stats.put("lastReloadTime", lastReloadTime.get());
+        stats.put("lastDurationMs", lastDurationMs.get());
+        stats.put("maxDurationMs", maxDurationMs.get());
+        stats.put("totalDurationMs", totalDurationMs.sum());
+        stats.put("lastAllocatedBytes", lastAllocatedBytes.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@ConditionalOnProperty(name = "catalog.reload.enabled", havingValue = "true")
+public class CatalogReloaderController {
+
+    @Autowired
+    private CatalogReloader catalogReloader;
+
+    @GetMapping("/catalog/reload/stats")
+    public Map<String, Long> getStats() {
+        return catalogReloader.getStats();
+    }
+}
@@ -0,0 +1,466 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Read-only, memory-mapped binary snapshot of the movie catalog and the mock
+ * reviews, so startup does not have to parse JSON.
+ *
+ * <p>Layout, all values big-endian:
+ * <pre>
+ * header     magic, version, source stamp, body checksum, movie count,
+ *            reviewed movie count, review count, string count,
+ *            director count, genre count
+ * movies     id long[], year int[], duration int[], rating double[],
+ *            name string ref int[], director int[], genre int[],
+ *            description, icon string refs int[]
+ * dictionary director, genre string refs int[]
+ * reviews    movie id long[], first review int[count + 1],
+ *            user, avatar string refs int[], rating double[], comment string ref int[]
+ * strings    end offsets int[], UTF-8 blob
+ * </pre>
+ * Directors and genres are numbered by dictionary, so indexes can be built
+ * from the columns without reading strings per movie. Icons and avatars are
+ * deduplicated in the string table; names, descriptions and comments are
+ * stored once each. The source stamp identifies the JSON the snapshot was
+ * built from, the body checksum guards against a corrupt file.
+ *
+ * <p>A {@link Movie} is decoded from the columns each time a position is asked
+ * for as a whole and is not kept, so the heap holds only what requests are
+ * using and the rest of the catalog stays in the page cache.
+ */
+public class CatalogSnapshot implements MovieColumns {
+    private static final int MAGIC = 0x51444d53; // "QDMS"
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 6 * 4;
+    // Sections are addressed by int offsets into a single mapping
+    static final long MAX_SIZE = Integer.MAX_VALUE;
+
+    private final MappedByteBuffer buffer;
+    private final long sourceStamp;
+    private final int movieCount;
+    private final int reviewedMovieCount;
+    private final int reviewCount;
+    private final int stringCount;
+    private final String[] directorNames;
+    private final String[] genreNames;
+
+    // Section offsets
+    private final int ids;
+    private final int years;
+    private final int durations;
+    private final int ratings;
+    private final int names;
+    private final int directors;
+    private final int genres;
+    private final int descriptions;
+    private final int icons;
+    private final int reviewMovieIds;
+    private final int reviewStarts;
+    private final int reviewUsers;
+    private final int reviewAvatars;
+    private final int reviewRatings;
+    private final int reviewComments;
+    private final int stringEnds;
+    private final int blob;
+
+    private CatalogSnapshot(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a catalog snapshot of version " + VERSION);
+        }
+        this.sourceStamp = buffer.getLong(8);
+        long bodyChecksum = buffer.getLong(16);
+        this.movieCount = buffer.getInt(24);
+        this.reviewedMovieCount = buffer.getInt(28);
+        this.reviewCount = buffer.getInt(32);
+        this.stringCount = buffer.getInt(36);
+        int directorCount = buffer.getInt(40);
+        int genreCount = buffer.getInt(44);
+
+        int offset = HEADER_SIZE;
+        ids = offset; offset += 8 * movieCount;
+        years = offset; offset += 4 * movieCount;
+        durations = offset; offset += 4 * movieCount;
+        ratings = offset; offset += 8 * movieCount;
+        names = offset; offset += 4 * movieCount;
+        directors = offset; offset += 4 * movieCount;
+        genres = offset; offset += 4 * movieCount;
+        descriptions = offset; offset += 4 * movieCount;
+        icons = offset; offset += 4 * movieCount;
+        int directorRefs = offset; offset += 4 * directorCount;
+        int genreRefs = offset; offset += 4 * genreCount;
+        reviewMovieIds = offset; offset += 8 * reviewedMovieCount;
+        reviewStarts = offset; offset += 4 * (reviewedMovieCount + 1);
+        reviewUsers = offset; offset += 4 * reviewCount;
+        reviewAvatars = offset; offset += 4 * reviewCount;
+        reviewRatings = offset; offset += 8 * reviewCount;
+        reviewComments = offset; offset += 4 * reviewCount;
+        stringEnds = offset; offset += 4 * stringCount;
+        blob = offset;
+        if (blob > buffer.capacity() || blob + stringEnd(stringCount - 1) != buffer.capacity()) {
+            throw new IOException("Catalog snapshot is truncated");
+        }
+
+        ByteBuffer body = buffer.duplicate();
+        body.position(HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        if (crc.getValue() != bodyChecksum) {
+            throw new IOException("Catalog snapshot checksum mismatch");
+        }
+
+        this.directorNames = new String[directorCount];
+        for (int d = 0; d < directorCount; d++) {
+            directorNames[d] = string(buffer.getInt(directorRefs + 4 * d));
+        }
+        this.genreNames = new String[genreCount];
+        for (int g = 0; g < genreCount; g++) {
+            genreNames[g] = string(buffer.getInt(genreRefs + 4 * g));
+        }
+    }
+
+    /**
+     * Maps and validates a snapshot file.
+     * @throws IOException if the file is missing, of another version, truncated or corrupt
+     */
+    public static CatalogSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Catalog snapshot larger than 2 GB");
+            }
+            return new CatalogSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Returns the stamp of the JSON sources this snapshot was built from.
+     */
+    public long getSourceStamp() {
+        return sourceStamp;
+    }
+
+    public int getMovieCount() {
+        return movieCount;
+    }
+
+    /**
+     * Returns the movies in catalog order, decoded as they are read.
+     */
+    public List<Movie> getMovies() {
+        return new MovieList();
+    }
+
+    private class MovieList extends AbstractList<Movie> implements RandomAccess {
+        @Override
+        public Movie get(int index) {
+            if (index < 0 || index >= movieCount) {
+                throw new IndexOutOfBoundsException("Index: " + index);
+            }
+            return getMovie(index);
+        }
+
+        @Override
+        public int size() {
+            return movieCount;
+        }
+    }
+
+    @Override
+    public int size() {
+        return movieCount;
+    }
+
+    @Override
+    public long getId(int position) {
+        return buffer.getLong(ids + 8 * position);
+    }
+
+    @Override
+    public int getYear(int position) {
+        return buffer.getInt(years + 4 * position);
+    }
+
+    @Override
+    public int getDuration(int position) {
+        return buffer.getInt(durations + 4 * position);
+    }
+
+    @Override
+    public double getImdbRating(int position) {
+        return buffer.getDouble(ratings + 8 * position);
+    }
+
+    @Override
+    public String getMovieName(int position) {
+        return string(buffer.getInt(names + 4 * position));
+    }
+
+    @Override
+    public String getDescription(int position) {
+        return string(buffer.getInt(descriptions + 4 * position));
+    }
+
+    @Override
+    public int getDirector(int position) {
+        return buffer.getInt(directors + 4 * position);
+    }
+
+    @Override
+    public int getDirectorCount() {
+        return directorNames.length;
+    }
+
+    @Override
+    public String getDirectorName(int director) {
+        return directorNames[director];
+    }
+
+    @Override
+    public int getGenre(int position) {
+        return buffer.getInt(genres + 4 * position);
+    }
+
+    @Override
+    public int getGenreCount() {
+        return genreNames.length;
+    }
+
+    @Override
+    public String getGenreName(int genre) {
+        return genreNames[genre];
+    }
+
+    @Override
+    public Movie getMovie(int position) {
+        return new Movie(
+            getId(position),
+            getMovieName(position),
+            directorNames[getDirector(position)],
+            getYear(position),
+            genreNames[getGenre(position)],
+            getDescription(position),
+            getDuration(position),
+            getImdbRating(position),
+            string(buffer.getInt(icons + 4 * position))
+        );
+    }
+
+    /**
+     * Materializes all reviews keyed by movie ID, in the order they were written.
+     */
+    public Map<Long, List<Review>> readReviews() {
+        Map<Long, List<Review>> reviews = new LinkedHashMap<>();
+        for (int m = 0; m < reviewedMovieCount; m++) {
+            int from = buffer.getInt(reviewStarts + 4 * m);
+            int to = buffer.getInt(reviewStarts + 4 * (m + 1));
+            List<Review> movieReviews = new ArrayList<>(to - from);
+            for (int r = from; r < to; r++) {
+                movieReviews.add(new Review(
+                    string(buffer.getInt(reviewUsers + 4 * r)),
+                    string(buffer.getInt(reviewAvatars + 4 * r)),
+                    buffer.getDouble(reviewRatings + 8 * r),
+                    string(buffer.getInt(reviewComments + 4 * r))
+                ));
+            }
+            reviews.put(buffer.getLong(reviewMovieIds + 8 * m), movieReviews);
+        }
+        return reviews;
+    }
+
+    private int stringEnd(int ref) {
+        return ref < 0 ? 0 : buffer.getInt(stringEnds + 4 * ref);
+    }
+
+    private String string(int ref) {
+        int start = stringEnd(ref - 1);
+        byte[] bytes = new byte[stringEnd(ref) - start];
+        ByteBuffer view = buffer.duplicate();
+        view.position(blob + start);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Collects strings while a snapshot is written, deduplicating only the
+     * values passed to {@link #shared}.
+     */
+    private static class StringTable {
+        private final List<byte[]> strings = new ArrayList<>();
+        private final Map<String, Integer> shared = new HashMap<>();
+        private long bytes;
+
+        int add(String value) {
+            byte[] string = value.getBytes(StandardCharsets.UTF_8);
+            strings.add(string);
+            bytes += string.length;
+            return strings.size() - 1;
+        }
+
+        int shared(String value) {
+            return shared.computeIfAbsent(value, this::add);
+        }
+    }
+
+    /**
+     * Writes a snapshot to a temporary file and atomically moves it into place.
+     * @return false if the snapshot would be larger than {@link #open} can map,
+     *         in which case nothing is written
+     */
+    public static boolean write(Path file, long sourceStamp, List<Movie> movies,
+                                Map<Long, List<Review>> reviews) throws IOException {
+        return write(file, sourceStamp, movies, reviews, MAX_SIZE);
+    }
+
+    static boolean write(Path file, long sourceStamp, List<Movie> movies,
+                         Map<Long, List<Review>> reviews, long maxSize) throws IOException {
+        StringTable strings = new StringTable();
+        MovieListColumns columns = new MovieListColumns(movies);
+        int n = movies.size();
+        int[] nameRefs = new int[n];
+        int[] descriptionRefs = new int[n];
+        int[] iconRefs = new int[n];
+        for (int i = 0; i < n; i++) {
+            Movie movie = movies.get(i);
+            nameRefs[i] = strings.add(movie.getMovieName());
+            descriptionRefs[i] = strings.add(movie.getDescription());
+            iconRefs[i] = strings.shared(movie.getIcon());
+        }
+        int[] directorRefs = new int[columns.getDirectorCount()];
+        for (int d = 0; d < directorRefs.length; d++) {
+            directorRefs[d] = strings.add(columns.getDirectorName(d));
+        }
+        int[] genreRefs = new int[columns.getGenreCount()];
+        for (int g = 0; g < genreRefs.length; g++) {
+            genreRefs[g] = strings.add(columns.getGenreName(g));
+        }
+        int reviewCount = 0;
+        for (List<Review> movieReviews : reviews.values()) {
+            reviewCount += movieReviews.size();
+        }
+        int[] userRefs = new int[reviewCount];
+        int[] avatarRefs = new int[reviewCount];
+        int[] commentRefs = new int[reviewCount];
+        int r = 0;
+        for (List<Review> movieReviews : reviews.values()) {
+            for (Review review : movieReviews) {
+                userRefs[r] = strings.add(review.getUserName());
+                avatarRefs[r] = strings.shared(review.getAvatarEmoji());
+                commentRefs[r] = strings.add(review.getComment());
+                r++;
+            }
+        }
+
+        long size = HEADER_SIZE + (8L + 4 + 4 + 8 + 5 * 4) * n + 4L * (directorRefs.length + genreRefs.length)
+            + 8L * reviews.size() + 4L * (reviews.size() + 1) + (4L + 4 + 8 + 4) * reviewCount
+            + 4L * strings.strings.size() + strings.bytes;
+        if (size > maxSize) {
+            return false;
+        }
+
+        Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        CRC32 crc = new CRC32();
+        try (OutputStream fileOut = Files.newOutputStream(tmpFile)) {
+            // The header is filled in once the body checksum is known
+            fileOut.write(new byte[HEADER_SIZE]);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(fileOut, crc), 64 * 1024));
+            for (Movie movie : movies) {
+                out.writeLong(movie.getId());
+            }
+            for (Movie movie : movies) {
+                out.writeInt(movie.getYear());
+            }
+            for (Movie movie : movies) {
+                out.writeInt(movie.getDuration());
+            }
+            for (Movie movie : movies) {
+                out.writeDouble(movie.getImdbRating());
+            }
+            writeInts(out, nameRefs);
+            for (int i = 0; i < n; i++) {
+                out.writeInt(columns.getDirector(i));
+            }
+            for (int i = 0; i < n; i++) {
+                out.writeInt(columns.getGenre(i));
+            }
+            writeInts(out, descriptionRefs);
+            writeInts(out, iconRefs);
+            writeInts(out, directorRefs);
+            writeInts(out, genreRefs);
+
+            for (Long movieId : reviews.keySet()) {
+                out.writeLong(movieId);
+            }
+            int start = 0;
+            out.writeInt(start);
+            for (List<Review> movieReviews : reviews.values()) {
+                start += movieReviews.size();
+                out.writeInt(start);
+            }
+            writeInts(out, userRefs);
+            writeInts(out, avatarRefs);
+            for (List<Review> movieReviews : reviews.values()) {
+                for (Review review : movieReviews) {
+                    out.writeDouble(review.getRating());
+                }
+            }
+            writeInts(out, commentRefs);
+
+            int end = 0;
+            for (byte[] string : strings.strings) {
+                end += string.length;
+                out.writeInt(end);
+            }
+            for (byte[] string : strings.strings) {
+                out.write(string);
+            }
+            out.flush();
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(tmpFile.toFile(), "rw")) {
+            raf.writeInt(MAGIC);
+            raf.writeInt(VERSION);
+            raf.writeLong(sourceStamp);
+            raf.writeLong(crc.getValue());
+            raf.writeInt(n);
+            raf.writeInt(reviews.size());
+            raf.writeInt(reviewCount);
+            raf.writeInt(strings.strings.size());
+            raf.writeInt(directorRefs.length);
+            raf.writeInt(genreRefs.length);
+            raf.getFD().sync();
+        }
+        Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+}
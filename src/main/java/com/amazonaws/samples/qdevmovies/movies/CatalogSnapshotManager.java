@@ -0,0 +1,134 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Provides the {@link CatalogSnapshot} configured with {@code catalog.snapshot-path}.
+ *
+ * <p>On startup the snapshot is matched against a stamp of the JSON sources'
+ * locations, sizes and modification times, so an unchanged catalog is not read
+ * at all. If the snapshot is missing, corrupt or was built from other sources,
+ * it is rebuilt from JSON. If that fails too, or the catalog is too large for
+ * a snapshot, no snapshot is provided and the services fall back to reading
+ * the JSON themselves.
+ */
+@Component
+public class CatalogSnapshotManager {
+    private static final Logger logger = LogManager.getLogger(CatalogSnapshotManager.class);
+
+    private final String snapshotPath;
+    private final String catalogPath;
+    private final String mockReviewsPath;
+    private volatile CatalogSnapshot snapshot;
+
+    public CatalogSnapshotManager(@Value("${catalog.snapshot-path:}") String snapshotPath,
+                                  @Value("${catalog.path:}") String catalogPath,
+                                  @Value("${reviews.mock-path:}") String mockReviewsPath) {
+        this.snapshotPath = snapshotPath;
+        this.catalogPath = catalogPath;
+        this.mockReviewsPath = mockReviewsPath;
+        this.snapshot = snapshotPath.isEmpty() ? null : openOrBuild(Paths.get(snapshotPath), catalogPath, mockReviewsPath);
+    }
+
+    /**
+     * Checks the snapshot against the JSON sources again and rebuilds it if
+     * they changed. Mappings of the previous snapshot stay valid for readers
+     * still using it.
+     *
+     * @return the new snapshot, or null if snapshots are disabled or unavailable
+     */
+    public CatalogSnapshot refresh() {
+        if (!snapshotPath.isEmpty()) {
+            snapshot = openOrBuild(Paths.get(snapshotPath), catalogPath, mockReviewsPath);
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return the snapshot, or null if snapshots are disabled or unavailable
+     */
+    public CatalogSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    private static CatalogSnapshot openOrBuild(Path snapshotPath, String catalogPath, String mockReviewsPath) {
+        long startTime = System.currentTimeMillis();
+        long sourceStamp;
+        try {
+            sourceStamp = stamp(catalogPath, "movies.json") * 31 + stamp(mockReviewsPath, "mock-reviews.json");
+        } catch (Exception e) {
+            logger.error("Failed to stamp catalog sources, not using a snapshot: {}", e.getMessage());
+            return null;
+        }
+
+        if (Files.exists(snapshotPath)) {
+            try {
+                CatalogSnapshot existing = CatalogSnapshot.open(snapshotPath);
+                if (existing.getSourceStamp() == sourceStamp) {
+                    logger.info("Opened catalog snapshot {} with {} movies in {} ms", snapshotPath,
+                        existing.getMovieCount(), System.currentTimeMillis() - startTime);
+                    return existing;
+                }
+                logger.info("Catalog snapshot {} is stale, rebuilding", snapshotPath);
+            } catch (Exception e) {
+                logger.warn("Catalog snapshot {} is unusable, rebuilding: {}", snapshotPath, e.getMessage());
+            }
+        }
+
+        try {
+            List<Movie> movies = new ArrayList<>();
+            MovieCatalogLoader.loadCatalog(catalogPath, movies::add);
+            Map<Long, List<Review>> reviews = ReviewService.readMockReviews(mockReviewsPath);
+            if (!CatalogSnapshot.write(snapshotPath, sourceStamp, movies, reviews)) {
+                logger.warn("Catalog is too large for a snapshot, reading the JSON instead");
+                Files.deleteIfExists(snapshotPath);
+                return null;
+            }
+            CatalogSnapshot built = CatalogSnapshot.open(snapshotPath);
+            logger.info("Built catalog snapshot {} with {} movies in {} ms", snapshotPath,
+                built.getMovieCount(), System.currentTimeMillis() - startTime);
+            return built;
+        } catch (Exception e) {
+            logger.error("Failed to build catalog snapshot {}, falling back to JSON: {}", snapshotPath, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Identifies a JSON source by location, size and modification time, read
+     * from file metadata rather than the content.
+     * @param path an external file, or empty for the bundled resource
+     */
+    static long stamp(String path, String resource) throws IOException {
+        if (path != null && !path.isEmpty()) {
+            Path file = Paths.get(path);
+            return stamp(file.toAbsolutePath().toString(), Files.size(file), Files.getLastModifiedTime(file).toMillis());
+        }
+        URL url = CatalogSnapshotManager.class.getClassLoader().getResource(resource);
+        if (url == null) {
+            return 0L;
+        }
+        URLConnection connection = url.openConnection();
+        long stamp = stamp(url.toString(), connection.getContentLengthLong(), connection.getLastModified());
+        // Reading the headers of a file or jar URL opens a stream
+        connection.getInputStream().close();
+        return stamp;
+    }
+
+    private static long stamp(String location, long size, long modified) {
+        return (location.hashCode() * 31L + size) * 31L + modified;
+    }
+}
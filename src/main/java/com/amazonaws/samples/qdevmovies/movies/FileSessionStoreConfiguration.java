@@ -0,0 +1,52 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.catalina.session.FileStore;
+import org.apache.catalina.session.PersistentManager;
+import org.apache.catalina.valves.PersistentValve;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Keeps HTTP sessions in files under {@code session.file.directory} instead of
+ * in memory when {@code session.store} is {@code file}. Each request loads its
+ * session from the directory and saves it back when it completes, so nodes
+ * sharing the directory can serve any request without sticky sessions.
+ *
+ * <p>Sessions only hold a {@link UserSession}, so a saved session is the
+ * container's session fields plus that compact encoding.
+ */
+@Configuration
+@ConditionalOnProperty(name = "session.store", havingValue = "file")
+public class FileSessionStoreConfiguration implements WebServerFactoryCustomizer<TomcatServletWebServerFactory> {
+    private static final Logger logger = LogManager.getLogger(FileSessionStoreConfiguration.class);
+
+    private final Path directory;
+
+    public FileSessionStoreConfiguration(@Value("${session.file.directory:data/sessions}") String directory) throws IOException {
+        this.directory = Paths.get(directory).toAbsolutePath();
+        Files.createDirectories(this.directory);
+    }
+
+    @Override
+    public void customize(TomcatServletWebServerFactory factory) {
+        factory.addContextCustomizers(context -> {
+            FileStore store = new FileStore();
+            store.setDirectory(directory.toString());
+            PersistentManager manager = new PersistentManager();
+            manager.setStore(store);
+            context.setManager(manager);
+            context.getPipeline().addValve(new PersistentValve());
+        });
+        logger.info("Storing sessions in {}", directory);
+    }
+}
@@ -0,0 +1,473 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpSession;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Shared user review store. Reviews are served from memory and persisted to an
+ * append-only log with one JSON record per line.
+ *
+ * <p>Accepted reviews are visible as soon as {@link #addReview} returns and are
+ * written behind: records wait in a bounded queue until a background writer
+ * appends them in batches of up to {@code reviews.log.batch-size} records, or
+ * whatever arrived within {@code reviews.log.batch-delay-ms} of the first one.
+ * When {@code reviews.log.queue-capacity} records are waiting, new reviews are
+ * refused with {@link ReviewQueueFullException}. The log is forced to disk
+ * every {@code reviews.log.fsync-interval-ms}, so a crash can lose at most the
+ * queued records and that window of written ones. On startup the log is replayed, a torn final
+ * record is truncated and malformed records are skipped. Whenever records had
+ * to be skipped, the log is compacted by rewriting it from memory into a new
+ * file that atomically replaces the old one.
+ */
+@Repository
+@ConditionalOnProperty(name = "reviews.store", havingValue = "log", matchIfMissing = true)
+public class LogUserReviewStore implements UserReviewStore {
+    private static final Logger logger = LogManager.getLogger(LogUserReviewStore.class);
+
+    private final Path logPath;
+    private final Map<Long, List<Review>> reviewsByMovie = new ConcurrentHashMap<>();
+    // A lock rather than a monitor, so that a virtual thread blocked in file I/O
+    // releases its carrier thread
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ScheduledExecutorService scheduler;
+
+    // Compaction takes the write side so that no review is in memory but not yet queued
+    private final ReentrantReadWriteLock enqueueLock = new ReentrantReadWriteLock();
+    private final BlockingQueue<PendingRecord> queue;
+    private final int batchSize;
+    private final long batchDelayNanos;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushedRecords = new AtomicLong();
+    private final AtomicLong flushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+
+    // Guarded by writeLock
+    private FileChannel channel;
+    private boolean dirty;
+    private boolean needsCompaction;
+    // Records queued before the latest compaction are already in the compacted log; written under
+    // writeLock and read under either lock
+    private volatile long generation;
+
+    private static final class PendingRecord {
+        final long generation;
+        final ByteBuffer bytes;
+
+        PendingRecord(long generation, ByteBuffer bytes) {
+            this.generation = generation;
+            this.bytes = bytes;
+        }
+    }
+
+    @Autowired
+    public LogUserReviewStore(@Value("${reviews.log.path:data/reviews.log}") String logPath,
+                              @Value("${reviews.log.fsync-interval-ms:200}") long fsyncIntervalMs,
+                              @Value("${reviews.log.compaction-interval-ms:60000}") long compactionIntervalMs,
+                              @Value("${reviews.log.queue-capacity:10000}") int queueCapacity,
+                              @Value("${reviews.log.batch-size:256}") int batchSize,
+                              @Value("${reviews.log.batch-delay-ms:10}") long batchDelayMs) throws IOException {
+        this(logPath, fsyncIntervalMs, compactionIntervalMs, queueCapacity, batchSize, batchDelayMs, true);
+    }
+
+    /**
+     * @param startWriter false to leave queued records until {@link #flush} or {@link #close}
+     */
+    LogUserReviewStore(String logPath, long fsyncIntervalMs, long compactionIntervalMs, int queueCapacity,
+                       int batchSize, long batchDelayMs, boolean startWriter) throws IOException {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.batchDelayNanos = TimeUnit.MILLISECONDS.toNanos(batchDelayMs);
+        this.logPath = Paths.get(logPath).toAbsolutePath();
+        Path parent = this.logPath.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        writeLock.lock();
+        try {
+            this.needsCompaction = recover();
+            this.channel = openChannel();
+            if (needsCompaction) {
+                compact();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "review-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (fsyncIntervalMs > 0) {
+            scheduler.scheduleWithFixedDelay(this::sync, fsyncIntervalMs, fsyncIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        if (compactionIntervalMs > 0) {
+            scheduler.scheduleWithFixedDelay(this::compactIfNeeded, compactionIntervalMs, compactionIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        this.writer = new Thread(this::writeBehind, "review-writer");
+        writer.setDaemon(true);
+        if (startWriter) {
+            writer.start();
+        }
+    }
+
+    @Override
+    public List<Review> getReviews(long movieId, HttpSession session) {
+        List<Review> reviews = reviewsByMovie.get(movieId);
+        return reviews != null ? reviews : Collections.<Review>emptyList();
+    }
+
+    /**
+     * Makes the review visible and queues it for the log.
+     * @throws ReviewQueueFullException if too many reviews are waiting to be written
+     */
+    @Override
+    public void addReview(long movieId, Review review, HttpSession session) {
+        ByteBuffer record = encode(movieId, review);
+        enqueueLock.readLock().lock();
+        try {
+            if (!queue.offer(new PendingRecord(generation, record))) {
+                throw new ReviewQueueFullException(queue.size());
+            }
+            reviewsByMovie.compute(movieId, (id, existing) -> append(existing, review));
+        } finally {
+            enqueueLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<Long, List<Review>> getAllSharedReviews() {
+        return Collections.unmodifiableMap(reviewsByMovie);
+    }
+
+    @Override
+    public boolean isShared() {
+        return true;
+    }
+
+    /**
+     * Writes every queued record to the log without waiting for the writer.
+     */
+    public void flush() {
+        List<PendingRecord> batch = new ArrayList<>();
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getFlushCount() {
+        return flushes.get();
+    }
+
+    public long getFlushedRecords() {
+        return flushedRecords.get();
+    }
+
+    public long getFlushTotalNanos() {
+        return flushNanos.get();
+    }
+
+    public long getMaxFlushNanos() {
+        return maxFlushNanos.get();
+    }
+
+    /**
+     * Forces appended records to disk if anything was written since the last sync.
+     */
+    public void sync() {
+        FileChannel toForce;
+        writeLock.lock();
+        try {
+            if (!dirty) {
+                return;
+            }
+            dirty = false;
+            toForce = channel;
+        } finally {
+            writeLock.unlock();
+        }
+        try {
+            toForce.force(false);
+        } catch (IOException e) {
+            logger.error("Failed to sync review log {}: {}", logPath, e.getMessage());
+            writeLock.lock();
+            try {
+                dirty = true;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Rewrites the log from the in-memory reviews and atomically replaces the old file.
+     */
+    public void compact() throws IOException {
+        enqueueLock.writeLock().lock();
+        writeLock.lock();
+        try {
+            // Every queued review is already in memory, so the rewrite below covers it
+            queue.clear();
+            generation++;
+            Path tmpPath = logPath.resolveSibling(logPath.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(tmpPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (Map.Entry<Long, List<Review>> entry : reviewsByMovie.entrySet()) {
+                    for (Review review : entry.getValue()) {
+                        ByteBuffer record = encode(entry.getKey(), review);
+                        while (record.hasRemaining()) {
+                            out.write(record);
+                        }
+                    }
+                }
+                out.force(true);
+            }
+            channel.close();
+            Files.move(tmpPath, logPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = openChannel();
+            dirty = false;
+            needsCompaction = false;
+            logger.info("Compacted review log {}", logPath);
+        } finally {
+            writeLock.unlock();
+            enqueueLock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        // Not interrupted: an interrupt during a write would close the channel
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler.shutdown();
+        flush();
+        sync();
+        writeLock.lock();
+        try {
+            channel.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void compactIfNeeded() {
+        writeLock.lock();
+        try {
+            if (!needsCompaction) {
+                return;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        try {
+            compact();
+        } catch (IOException e) {
+            logger.error("Failed to compact review log {}: {}", logPath, e.getMessage());
+        }
+    }
+
+    private void writeBehind() {
+        List<PendingRecord> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                PendingRecord first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + batchDelayNanos;
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    PendingRecord next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Write the partial batch; close() writes whatever is still queued
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Appends a batch of records with one gathering write.
+     */
+    private void write(List<PendingRecord> batch) {
+        long start = System.nanoTime();
+        writeLock.lock();
+        try {
+            List<ByteBuffer> buffers = new ArrayList<>(batch.size());
+            for (PendingRecord record : batch) {
+                if (record.generation == generation) {
+                    buffers.add(record.bytes);
+                }
+            }
+            if (buffers.isEmpty()) {
+                return;
+            }
+            ByteBuffer[] records = buffers.toArray(new ByteBuffer[0]);
+            ByteBuffer last = records[records.length - 1];
+            while (last.hasRemaining()) {
+                channel.write(records);
+            }
+            dirty = true;
+            flushedRecords.addAndGet(records.length);
+        } catch (IOException e) {
+            // The reviews are in memory and a partial record may have reached the file;
+            // the next compaction rewrites the log from memory
+            needsCompaction = true;
+            logger.error("Failed to write {} reviews to {}: {}", batch.size(), logPath, e.getMessage());
+        } finally {
+            writeLock.unlock();
+        }
+        long elapsed = System.nanoTime() - start;
+        flushes.incrementAndGet();
+        flushNanos.addAndGet(elapsed);
+        maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+    }
+
+    private FileChannel openChannel() throws IOException {
+        return FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Replays the log into memory.
+     * @return true if any records were skipped and the log should be compacted
+     */
+    private boolean recover() throws IOException {
+        if (!Files.exists(logPath)) {
+            return false;
+        }
+        long validLength = 0;
+        long offset = 0;
+        int recovered = 0;
+        int skipped = 0;
+        // Replayed into growable lists, as copying a movie's reviews per record would be quadratic
+        Map<Long, List<Review>> replayed = new HashMap<>();
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(logPath))) {
+            int b;
+            while ((b = in.read()) != -1) {
+                offset++;
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                if (decodeInto(line.toByteArray(), replayed)) {
+                    recovered++;
+                } else {
+                    skipped++;
+                }
+                line.reset();
+                validLength = offset;
+            }
+        }
+        if (validLength < offset) {
+            // The last record was not terminated, so it was torn by a crash mid-write
+            try (FileChannel truncate = FileChannel.open(logPath, StandardOpenOption.WRITE)) {
+                truncate.truncate(validLength);
+            }
+            logger.warn("Truncated torn record at end of review log {}", logPath);
+        }
+        for (Map.Entry<Long, List<Review>> entry : replayed.entrySet()) {
+            reviewsByMovie.put(entry.getKey(), Collections.unmodifiableList(
+                Arrays.asList(entry.getValue().toArray(new Review[0]))));
+        }
+        if (skipped > 0) {
+            logger.warn("Skipped {} malformed records in review log {}", skipped, logPath);
+        }
+        logger.info("Recovered {} reviews from {}", recovered, logPath);
+        return skipped > 0;
+    }
+
+    private static boolean decodeInto(byte[] line, Map<Long, List<Review>> replayed) {
+        try {
+            JSONObject record = new JSONObject(new String(line, StandardCharsets.UTF_8));
+            long movieId = record.getLong("movieId");
+            Review review = new Review(
+                record.getString("userName"),
+                record.getString("avatarEmoji"),
+                record.getDouble("rating"),
+                record.getString("comment")
+            );
+            replayed.computeIfAbsent(movieId, id -> new ArrayList<>()).add(review);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static ByteBuffer encode(long movieId, Review review) {
+        JSONObject record = new JSONObject();
+        record.put("movieId", movieId);
+        record.put("userName", review.getUserName());
+        record.put("avatarEmoji", review.getAvatarEmoji());
+        record.put("rating", review.getRating());
+        record.put("comment", review.getComment());
+        // JSONObject escapes control characters, so the record never contains a raw newline
+        return ByteBuffer.wrap((record.toString() + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<Review> append(List<Review> existing, Review review) {
+        int size = existing == null ? 0 : existing.size();
+        Review[] reviews = existing == null ? new Review[1] : existing.toArray(new Review[size + 1]);
+        reviews[size] = review;
+        return Collections.unmodifiableList(Arrays.asList(reviews));
+    }
+}
@@ -1,8 +1,13 @@
 package com.amazonaws.samples.qdevmovies.movies;
 
-import com.amazonaws.samples.qdevmovies.utils.MovieIconUtils;
+import com.amazonaws.samples.qdevmovies.utils.RatingFormat;
 
+/**
+ * A catalog entry. Display fields derived from the catalog data are computed
+ * when the movie is created, so templates only read them.
+ */
 public class Movie {
+    public static final String DEFAULT_ICON = "🎬";
 
     private final long id;
     private final String movieName;
@@ -12,8 +17,20 @@ public class Movie {
     private final String description;
     private final int duration;
     private final double imdbRating;
+    private final String icon;
+    // Shared strings from RatingFormat's tables
+    private final String stars;
+    private final String ratingText;
 
     public Movie(long id, String movieName, String director, int year, String genre, String description, int duration, double imdbRating) {
+        this(id, movieName, director, year, genre, description, duration, imdbRating, null);
+    }
+
+    /**
+     * @param icon emoji shown for the movie, or null for {@link #DEFAULT_ICON}
+     */
+    public Movie(long id, String movieName, String director, int year, String genre, String description, int duration,
+                 double imdbRating, String icon) {
         this.id = id;
         this.movieName = movieName;
         this.director = director;
@@ -22,6 +39,9 @@ public class Movie {
         this.description = description;
         this.duration = duration;
         this.imdbRating = imdbRating;
+        this.icon = icon != null ? icon : DEFAULT_ICON;
+        this.stars = RatingFormat.stars(imdbRating);
+        this.ratingText = RatingFormat.format(imdbRating);
     }
 
     public long getId() {
@@ -57,6 +77,20 @@ public class Movie {
     }
 
     public String getIcon() {
-        return MovieIconUtils.getMovieIcon(this.movieName);
+        return this.icon;
+    }
+
+    /**
+     * Returns the IMDb rating as five full, half or empty stars.
+     */
+    public String getStars() {
+        return this.stars;
+    }
+
+    /**
+     * Returns the IMDb rating with one decimal, e.g. "4.5".
+     */
+    public String getRatingText() {
+        return this.ratingText;
     }
 }
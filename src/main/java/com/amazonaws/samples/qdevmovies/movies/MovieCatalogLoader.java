@@ -0,0 +1,224 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Streams movies out of a catalog JSON array token by token, handing each
+ * {@link Movie} to a consumer as soon as it is complete. Only one record is
+ * held at a time, so heap use does not depend on the file size.
+ *
+ * <p>Records with missing or mistyped fields are logged and skipped
+ * individually. A syntax error ends the load, keeping the movies read so far.
+ */
+public class MovieCatalogLoader {
+    private static final Logger logger = LogManager.getLogger(MovieCatalogLoader.class);
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    public static class Result {
+        private int loaded;
+        private int skipped;
+
+        public int getLoaded() { return loaded; }
+        public int getSkipped() { return skipped; }
+    }
+
+    /**
+     * Reads the catalog at {@code catalogPath}, or the bundled movies.json if the path is empty.
+     */
+    public static Result loadCatalog(String catalogPath, Consumer<Movie> sink) throws IOException {
+        if (catalogPath != null && !catalogPath.isEmpty()) {
+            return load(Paths.get(catalogPath), sink);
+        }
+        try (InputStream in = openBundledCatalog()) {
+            return load(in, sink);
+        }
+    }
+
+    private static InputStream openBundledCatalog() throws IOException {
+        InputStream in = MovieCatalogLoader.class.getClassLoader().getResourceAsStream("movies.json");
+        if (in == null) {
+            throw new IOException("Bundled movies.json not found");
+        }
+        return in;
+    }
+
+    /**
+     * Reads a catalog from a file through memory-mapped windows instead of heap buffers.
+     */
+    public static Result load(Path file, Consumer<Movie> sink) throws IOException {
+        try (InputStream in = new MappedInputStream(FileChannel.open(file, StandardOpenOption.READ))) {
+            return load(in, sink);
+        }
+    }
+
+    public static Result load(InputStream in, Consumer<Movie> sink) throws IOException {
+        Result result = new Result();
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Catalog must be a JSON array");
+            }
+            int record = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                if (token != JsonToken.START_OBJECT) {
+                    logger.warn("Skipping catalog record {}: not an object", record);
+                    parser.skipChildren();
+                    result.skipped++;
+                } else {
+                    Movie movie = readMovie(parser, record);
+                    if (movie != null) {
+                        sink.accept(movie);
+                        result.loaded++;
+                    } else {
+                        result.skipped++;
+                    }
+                }
+                record++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads the fields of one record, leaving the parser on its END_OBJECT.
+     * @return the movie, or null if the record is invalid
+     */
+    private static Movie readMovie(JsonParser parser, int record) throws IOException {
+        Long id = null;
+        String movieName = null;
+        String director = null;
+        Integer year = null;
+        String genre = null;
+        String description = null;
+        Integer duration = null;
+        Double imdbRating = null;
+        String icon = null;
+        String error = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            try {
+                switch (field) {
+                    case "id": id = isNumber(parser, value) ? parser.getLongValue() : null; break;
+                    case "movieName": movieName = textOf(parser, value); break;
+                    case "director": director = textOf(parser, value); break;
+                    case "year": year = isNumber(parser, value) ? parser.getIntValue() : null; break;
+                    case "genre": genre = textOf(parser, value); break;
+                    case "description": description = textOf(parser, value); break;
+                    case "duration": duration = isNumber(parser, value) ? parser.getIntValue() : null; break;
+                    case "imdbRating": imdbRating = isNumber(parser, value) ? parser.getDoubleValue() : null; break;
+                    // Optional; the few distinct icons are shared between movies
+                    case "icon": icon = value == JsonToken.VALUE_STRING ? parser.getText().intern() : textOf(parser, value); break;
+                    default: parser.skipChildren(); break;
+                }
+            } catch (IOException e) {
+                // Numeric overflow and similar value errors only invalidate this record
+                error = field + ": " + e.getMessage();
+            }
+        }
+
+        if (error == null) {
+            error = id == null ? "id" : movieName == null ? "movieName" : director == null ? "director"
+                : year == null ? "year" : genre == null ? "genre" : description == null ? "description"
+                : duration == null ? "duration" : imdbRating == null ? "imdbRating" : null;
+            if (error != null) {
+                error = "missing or invalid field " + error;
+            }
+        }
+        if (error != null) {
+            logger.warn("Skipping catalog record {}: {}", record, error);
+            return null;
+        }
+        return new Movie(id, movieName, director, year, genre, description, duration, imdbRating, icon);
+    }
+
+    /**
+     * Returns whether the value is a number; any other value, including a
+     * nested object or array, is skipped so that the record's fields continue.
+     */
+    private static boolean isNumber(JsonParser parser, JsonToken value) throws IOException {
+        if (!value.isNumeric()) {
+            parser.skipChildren();
+            return false;
+        }
+        return true;
+    }
+
+    private static String textOf(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.VALUE_STRING) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getText();
+    }
+
+    /**
+     * Input stream over a file channel that maps one window of the file at a
+     * time, so files larger than a single mapping can be read. Closing the
+     * stream closes the channel.
+     */
+    static class MappedInputStream extends InputStream {
+        private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+        private final FileChannel channel;
+        private final long size;
+        private long windowStart;
+        private MappedByteBuffer window;
+
+        MappedInputStream(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        private boolean ensureWindow() throws IOException {
+            if (window != null && window.hasRemaining()) {
+                return true;
+            }
+            long next = window == null ? 0 : windowStart + window.capacity();
+            if (next >= size) {
+                return false;
+            }
+            windowStart = next;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, next, Math.min(WINDOW_SIZE, size - next));
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        @Override
+        public int read() throws IOException {
+            return ensureWindow() ? window.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!ensureWindow()) {
+                return -1;
+            }
+            int count = Math.min(length, window.remaining());
+            window.get(buffer, offset, count);
+            return count;
+        }
+    }
+}
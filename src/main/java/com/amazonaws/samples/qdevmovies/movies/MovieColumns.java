@@ -0,0 +1,47 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+/**
+ * A movie catalog read by column, so indexes can be built from primitive
+ * values without materializing a {@link Movie} per position. Directors and
+ * genres are numbered densely by their distinct values, so per-value work is
+ * done once per director or genre rather than once per movie.
+ */
+interface MovieColumns {
+
+    int size();
+
+    long getId(int position);
+
+    int getYear(int position);
+
+    int getDuration(int position);
+
+    double getImdbRating(int position);
+
+    String getMovieName(int position);
+
+    String getDescription(int position);
+
+    /**
+     * Returns the movie's director as a number below {@link #getDirectorCount()}.
+     */
+    int getDirector(int position);
+
+    int getDirectorCount();
+
+    String getDirectorName(int director);
+
+    /**
+     * Returns the movie's genre as a number below {@link #getGenreCount()}.
+     */
+    int getGenre(int position);
+
+    int getGenreCount();
+
+    String getGenreName(int genre);
+
+    /**
+     * Returns the whole movie, e.g. for rendering.
+     */
+    Movie getMovie(int position);
+}
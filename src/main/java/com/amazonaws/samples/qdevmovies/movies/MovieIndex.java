@@ -0,0 +1,367 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Immutable secondary indexes over a movie catalog. Each movie is identified by
+ * its position in the catalog:
+ *
+ * <ul>
+ * <li>genres map to bitsets of positions, for membership tests, and to sorted
+ *     position lists, with compound genres such as {@code Crime/Drama} indexed
+ *     under each part</li>
+ * <li>directors, of which there are many more, map to a range of one shared
+ *     array of positions grouped by director, so memory stays linear in the
+ *     catalog size</li>
+ * <li>year, duration and rating are kept as value columns with the positions
+ *     sorted by value, so a range is found by binary search</li>
+ * <li>each sort order is kept both as positions in order and as a rank per
+ *     position; the name order, the only one that needs every movie's name,
+ *     is computed when first asked for</li>
+ * </ul>
+ *
+ * A page is read by walking a sort order from the cursor and testing each
+ * position against the query's predicates, so without filters only the
+ * returned movies are visited. With filters, the walk gives up after as many
+ * steps as the most selective predicate has matches; the page is then picked
+ * by rank from those matches. A page thus costs the page size divided by the
+ * share of matches, but never much more than the smallest predicate's match
+ * count, and no per-request structure spans the catalog.
+ */
+class MovieIndex {
+    static final Set<String> SORTS = Collections.unmodifiableSet(
+        new HashSet<>(Arrays.asList("rating", "year", "duration", "name")));
+
+    private static final class NumericIndex {
+        private final double[] values;
+        // Positions ordered by value
+        private final int[] positions;
+
+        NumericIndex(double[] values) {
+            this.values = values;
+            this.positions = order(values.length, Comparator.comparingDouble(i -> values[i]));
+        }
+
+        boolean contains(int position, double min, double max) {
+            return values[position] >= min && values[position] <= max;
+        }
+
+        /**
+         * Returns the first index into the sorted positions whose value is not
+         * below {@code min}, or if {@code inclusive} is false, not {@code min} or below.
+         */
+        int bound(double min, boolean inclusive) {
+            int low = 0;
+            int high = positions.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                double value = values[positions[mid]];
+                if (value < min || !inclusive && value == min) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * The predicates of one query, and the matches of its most selective single
+     * predicate, {@code candidates[from]} to {@code candidates[to - 1]}.
+     */
+    private final class Filter {
+        private BitSet genre;
+        private int director = -1;
+        private double minYear = Double.NEGATIVE_INFINITY;
+        private double maxYear = Double.POSITIVE_INFINITY;
+        private double minDuration = Double.NEGATIVE_INFINITY;
+        private double maxDuration = Double.POSITIVE_INFINITY;
+        private double minRating = Double.NEGATIVE_INFINITY;
+        private int[] candidates;
+        private int from;
+        private int to = Integer.MAX_VALUE;
+
+        void narrow(int[] positions, int start, int end) {
+            if (end - start < to - from) {
+                candidates = positions;
+                from = start;
+                to = end;
+            }
+        }
+
+        int candidateCount() {
+            return to - from;
+        }
+
+        boolean matches(int position) {
+            return (genre == null || genre.get(position))
+                && (director < 0 || directorColumn[position] == director)
+                && years.contains(position, minYear, maxYear)
+                && durations.contains(position, minDuration, maxDuration)
+                && ratings.contains(position, minRating, Double.POSITIVE_INFINITY);
+        }
+    }
+
+    private final MovieColumns movies;
+    private final Map<String, BitSet> genres = new HashMap<>();
+    private final Map<String, int[]> genrePositions = new HashMap<>();
+    private final Map<String, Integer> directorIds = new HashMap<>();
+    private final int[] directorColumn;
+    // Positions grouped by director ID; director d owns [directorStarts[d], directorStarts[d + 1])
+    private final int[] directorStarts;
+    private final int[] directorPositions;
+    private final List<String> genreNames;
+    private final NumericIndex years;
+    private final NumericIndex durations;
+    private final NumericIndex ratings;
+    private final Map<String, int[]> sortOrders = new HashMap<>();
+    private final Map<String, int[]> sortRanks = new HashMap<>();
+    // Guarded by this
+    private int[] nameOrder;
+    private int[] nameRanks;
+
+    /**
+     * Builds the indexes in one pass over the catalog's primitive columns.
+     * Director and genre names are read once per distinct value, and no movie
+     * is materialized.
+     */
+    MovieIndex(MovieColumns catalog) {
+        this.movies = catalog;
+        int size = catalog.size();
+        // Genre parts and director IDs of each distinct catalog value
+        Map<String, String> displayGenres = new TreeMap<>();
+        BitSet[][] genreParts = new BitSet[catalog.getGenreCount()][];
+        for (int g = 0; g < genreParts.length; g++) {
+            List<BitSet> parts = new ArrayList<>();
+            for (String genre : catalog.getGenreName(g).split("/")) {
+                String name = genre.trim();
+                if (!name.isEmpty()) {
+                    parts.add(genres.computeIfAbsent(normalize(name), key -> new BitSet(size)));
+                    displayGenres.putIfAbsent(normalize(name), name);
+                }
+            }
+            genreParts[g] = parts.toArray(new BitSet[0]);
+        }
+        int[] directorKeys = new int[catalog.getDirectorCount()];
+        for (int d = 0; d < directorKeys.length; d++) {
+            directorKeys[d] = directorIds.computeIfAbsent(normalize(catalog.getDirectorName(d)), key -> directorIds.size());
+        }
+
+        double[] yearColumn = new double[size];
+        double[] durationColumn = new double[size];
+        double[] ratingColumn = new double[size];
+        int[] directorColumn = new int[size];
+        for (int i = 0; i < size; i++) {
+            for (BitSet part : genreParts[catalog.getGenre(i)]) {
+                part.set(i);
+            }
+            directorColumn[i] = directorKeys[catalog.getDirector(i)];
+            yearColumn[i] = catalog.getYear(i);
+            durationColumn[i] = catalog.getDuration(i);
+            ratingColumn[i] = catalog.getImdbRating(i);
+        }
+        this.genreNames = Collections.unmodifiableList(new ArrayList<>(displayGenres.values()));
+        for (Map.Entry<String, BitSet> genre : genres.entrySet()) {
+            genrePositions.put(genre.getKey(), genre.getValue().stream().toArray());
+        }
+        this.directorColumn = directorColumn;
+
+        // Counting sort of positions by director
+        this.directorStarts = new int[directorIds.size() + 1];
+        for (int director : directorColumn) {
+            directorStarts[director + 1]++;
+        }
+        for (int d = 0; d < directorIds.size(); d++) {
+            directorStarts[d + 1] += directorStarts[d];
+        }
+        this.directorPositions = new int[size];
+        int[] fill = Arrays.copyOf(directorStarts, directorIds.size());
+        for (int i = 0; i < size; i++) {
+            directorPositions[fill[directorColumn[i]]++] = i;
+        }
+
+        this.years = new NumericIndex(yearColumn);
+        this.durations = new NumericIndex(durationColumn);
+        this.ratings = new NumericIndex(ratingColumn);
+
+        addSort("rating", order(size, (a, b) -> Double.compare(ratingColumn[b], ratingColumn[a])));
+        addSort("year", order(size, (a, b) -> Double.compare(yearColumn[b], yearColumn[a])));
+        addSort("duration", order(size, Comparator.comparingDouble(i -> durationColumn[i])));
+    }
+
+    private void addSort(String name, int[] order) {
+        sortOrders.put(name, order);
+        sortRanks.put(name, ranks(order));
+    }
+
+    private int[] sortOrder(String sort) {
+        if (!"name".equals(sort)) {
+            return sortOrders.get(sort);
+        }
+        synchronized (this) {
+            if (nameOrder == null) {
+                String[] nameColumn = new String[movies.size()];
+                for (int i = 0; i < nameColumn.length; i++) {
+                    nameColumn[i] = movies.getMovieName(i);
+                }
+                nameOrder = order(nameColumn.length,
+                    (a, b) -> String.CASE_INSENSITIVE_ORDER.compare(nameColumn[a], nameColumn[b]));
+                nameRanks = ranks(nameOrder);
+            }
+            return nameOrder;
+        }
+    }
+
+    private int[] sortRanks(String sort) {
+        if (!"name".equals(sort)) {
+            return sortRanks.get(sort);
+        }
+        sortOrder(sort);
+        synchronized (this) {
+            return nameRanks;
+        }
+    }
+
+    /**
+     * Returns the distinct genres in the catalog, compound genres split into their parts.
+     */
+    List<String> getGenres() {
+        return genreNames;
+    }
+
+    /**
+     * Returns up to {@code limit} matches that follow the movie at catalog
+     * position {@code afterPosition} in the query's order, or the first matches
+     * if {@code afterPosition} is negative.
+     */
+    List<Movie> findPage(MovieQuery query, int afterPosition, int limit) {
+        int size = movies.size();
+        int[] order = query.getSort() != null ? sortOrder(query.getSort()) : null;
+        int[] ranks = order != null ? sortRanks(query.getSort()) : null;
+        int start = 0;
+        if (afterPosition >= 0) {
+            start = (ranks != null ? ranks[afterPosition] : afterPosition) + 1;
+        }
+        Filter filter = query.hasFilters() ? filter(query) : null;
+        List<Movie> page = new ArrayList<>(Math.min(limit, size));
+        long steps = filter != null ? filter.candidateCount() : Long.MAX_VALUE;
+        int rank = start;
+        for (; rank < size && page.size() < limit && steps > 0; rank++, steps--) {
+            int position = order != null ? order[rank] : rank;
+            if (filter == null || filter.matches(position)) {
+                page.add(movies.getMovie(position));
+            }
+        }
+        if (rank < size && page.size() < limit) {
+            addCandidates(filter, order, ranks, rank, limit, page);
+        }
+        return page;
+    }
+
+    /**
+     * Fills the page with the filter's matches from {@code fromRank} on, taken
+     * in rank order from its candidates rather than by walking the sort order.
+     */
+    private void addCandidates(Filter filter, int[] order, int[] ranks, int fromRank, int limit, List<Movie> page) {
+        int[] matchRanks = new int[filter.candidateCount()];
+        int count = 0;
+        for (int i = filter.from; i < filter.to; i++) {
+            int position = filter.candidates[i];
+            int rank = ranks != null ? ranks[position] : position;
+            if (rank >= fromRank && filter.matches(position)) {
+                matchRanks[count++] = rank;
+            }
+        }
+        Arrays.sort(matchRanks, 0, count);
+        for (int i = 0; i < count && page.size() < limit; i++) {
+            page.add(movies.getMovie(order != null ? order[matchRanks[i]] : matchRanks[i]));
+        }
+    }
+
+    private Filter filter(MovieQuery query) {
+        Filter filter = new Filter();
+        if (!MovieQuery.isBlank(query.getGenre())) {
+            String genre = normalize(query.getGenre());
+            filter.genre = genres.getOrDefault(genre, new BitSet());
+            int[] positions = genrePositions.getOrDefault(genre, new int[0]);
+            filter.narrow(positions, 0, positions.length);
+        }
+        if (!MovieQuery.isBlank(query.getDirector())) {
+            Integer director = directorIds.get(normalize(query.getDirector()));
+            if (director == null) {
+                filter.narrow(directorPositions, 0, 0);
+            } else {
+                filter.director = director;
+                filter.narrow(directorPositions, directorStarts[director], directorStarts[director + 1]);
+            }
+        }
+        if (query.getMinYear() != null || query.getMaxYear() != null) {
+            filter.minYear = orMin(query.getMinYear());
+            filter.maxYear = orMax(query.getMaxYear());
+            narrowToRange(filter, years, filter.minYear, filter.maxYear);
+        }
+        if (query.getMinDuration() != null || query.getMaxDuration() != null) {
+            filter.minDuration = orMin(query.getMinDuration());
+            filter.maxDuration = orMax(query.getMaxDuration());
+            narrowToRange(filter, durations, filter.minDuration, filter.maxDuration);
+        }
+        if (query.getMinRating() != null) {
+            filter.minRating = query.getMinRating();
+            narrowToRange(filter, ratings, filter.minRating, Double.POSITIVE_INFINITY);
+        }
+        return filter;
+    }
+
+    private static void narrowToRange(Filter filter, NumericIndex index, double min, double max) {
+        int start = index.bound(min, true);
+        filter.narrow(index.positions, start, Math.max(start, index.bound(max, false)));
+    }
+
+    private static double orMin(Integer value) {
+        return value != null ? value : Double.NEGATIVE_INFINITY;
+    }
+
+    private static double orMax(Integer value) {
+        return value != null ? value : Double.POSITIVE_INFINITY;
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns catalog positions ordered by the comparator; ties keep catalog order.
+     */
+    private static int[] order(int size, Comparator<Integer> comparator) {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, comparator);
+        int[] positions = new int[size];
+        for (int i = 0; i < size; i++) {
+            positions[i] = order[i];
+        }
+        return positions;
+    }
+
+    private static int[] ranks(int[] order) {
+        int[] ranks = new int[order.length];
+        for (int rank = 0; rank < order.length; rank++) {
+            ranks[order[rank]] = rank;
+        }
+        return ranks;
+    }
+}
@@ -0,0 +1,115 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column view of movies that are already on the heap, e.g. a catalog read
+ * from JSON or generated for a benchmark.
+ */
+class MovieListColumns implements MovieColumns {
+    private final List<Movie> movies;
+    private final int[] directors;
+    private final List<String> directorNames = new ArrayList<>();
+    private final int[] genres;
+    private final List<String> genreNames = new ArrayList<>();
+
+    MovieListColumns(List<Movie> movies) {
+        this.movies = movies;
+        this.directors = new int[movies.size()];
+        this.genres = new int[movies.size()];
+        Map<String, Integer> directorKeys = new HashMap<>();
+        Map<String, Integer> genreKeys = new HashMap<>();
+        for (int i = 0; i < directors.length; i++) {
+            Movie movie = movies.get(i);
+            directors[i] = key(directorKeys, directorNames, movie.getDirector());
+            genres[i] = key(genreKeys, genreNames, movie.getGenre());
+        }
+    }
+
+    private static int key(Map<String, Integer> keys, List<String> names, String value) {
+        Integer key = keys.get(value);
+        if (key == null) {
+            key = names.size();
+            keys.put(value, key);
+            names.add(value);
+        }
+        return key;
+    }
+
+    List<Movie> getMovies() {
+        return movies;
+    }
+
+    @Override
+    public int size() {
+        return directors.length;
+    }
+
+    @Override
+    public long getId(int position) {
+        return movies.get(position).getId();
+    }
+
+    @Override
+    public int getYear(int position) {
+        return movies.get(position).getYear();
+    }
+
+    @Override
+    public int getDuration(int position) {
+        return movies.get(position).getDuration();
+    }
+
+    @Override
+    public double getImdbRating(int position) {
+        return movies.get(position).getImdbRating();
+    }
+
+    @Override
+    public String getMovieName(int position) {
+        return movies.get(position).getMovieName();
+    }
+
+    @Override
+    public String getDescription(int position) {
+        return movies.get(position).getDescription();
+    }
+
+    @Override
+    public int getDirector(int position) {
+        return directors[position];
+    }
+
+    @Override
+    public int getDirectorCount() {
+        return directorNames.size();
+    }
+
+    @Override
+    public String getDirectorName(int director) {
+        return directorNames.get(director);
+    }
+
+    @Override
+    public int getGenre(int position) {
+        return genres[position];
+    }
+
+    @Override
+    public int getGenreCount() {
+        return genreNames.size();
+    }
+
+    @Override
+    public String getGenreName(int genre) {
+        return genreNames.get(genre);
+    }
+
+    @Override
+    public Movie getMovie(int position) {
+        return movies.get(position);
+    }
+}
@@ -0,0 +1,107 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+/**
+ * Filter and sort criteria for the movie catalog, bound from request parameters
+ * such as {@code /movies?genre=Drama&minYear=1990&sort=rating}. Unset criteria
+ * do not restrict the result. {@code after} is the ID of the last movie on the
+ * previous page, not a filter.
+ */
+public class MovieQuery {
+    private String genre;
+    private String director;
+    private Integer minYear;
+    private Integer maxYear;
+    private Integer minDuration;
+    private Integer maxDuration;
+    private Double minRating;
+    private String sort;
+    private Long after;
+
+    public MovieQuery() {
+    }
+
+    public boolean hasFilters() {
+        return !isBlank(genre) || !isBlank(director) || minYear != null || maxYear != null
+            || minDuration != null || maxDuration != null || minRating != null;
+    }
+
+    public boolean isEmpty() {
+        return !hasFilters() && isBlank(sort);
+    }
+
+    static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    public String getGenre() {
+        return genre;
+    }
+
+    public void setGenre(String genre) {
+        this.genre = genre;
+    }
+
+    public String getDirector() {
+        return director;
+    }
+
+    public void setDirector(String director) {
+        this.director = director;
+    }
+
+    public Integer getMinYear() {
+        return minYear;
+    }
+
+    public void setMinYear(Integer minYear) {
+        this.minYear = minYear;
+    }
+
+    public Integer getMaxYear() {
+        return maxYear;
+    }
+
+    public void setMaxYear(Integer maxYear) {
+        this.maxYear = maxYear;
+    }
+
+    public Integer getMinDuration() {
+        return minDuration;
+    }
+
+    public void setMinDuration(Integer minDuration) {
+        this.minDuration = minDuration;
+    }
+
+    public Integer getMaxDuration() {
+        return maxDuration;
+    }
+
+    public void setMaxDuration(Integer maxDuration) {
+        this.maxDuration = maxDuration;
+    }
+
+    public Double getMinRating() {
+        return minRating;
+    }
+
+    public void setMinRating(Double minRating) {
+        this.minRating = minRating;
+    }
+
+    public String getSort() {
+        return sort;
+    }
+
+    public void setSort(String sort) {
+        this.sort = sort;
+    }
+
+    public Long getAfter() {
+        return after;
+    }
+
+    public void setAfter(Long after) {
+        this.after = after;
+    }
+}
@@ -1,72 +1,242 @@
 package com.amazonaws.samples.qdevmovies.movies;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import java.util.Scanner;
 
 @Service
 public class MovieService {
     private static final Logger logger = LogManager.getLogger(MovieService.class);
-    private final List<Movie> movies;
-    private final Map<Long, Movie> movieMap;
 
-    public MovieService() {
-        this.movies = loadMoviesFromJson();
-        this.movieMap = new HashMap<>();
-        for (Movie movie : movies) {
-            movieMap.put(movie.getId(), movie);
+    /**
+     * An immutable catalog with its lookup tables and indexes. Readers take the
+     * current instance once per call, so a call never mixes two catalogs.
+     */
+    static final class Catalog {
+        private final MovieColumns columns;
+        private final List<Movie> movies;
+        // Catalog positions ordered by movie ID, for lookups and keyset pagination
+        private final long[] sortedIds;
+        private final int[] positionsById;
+        private final MovieIndex index;
+
+        Catalog(MovieColumns columns, List<Movie> movies) {
+            this.columns = columns;
+            this.movies = movies;
+            Integer[] order = new Integer[columns.size()];
+            long[] ids = new long[columns.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+                ids[i] = columns.getId(i);
+            }
+            Arrays.sort(order, Comparator.<Integer>comparingLong(i -> ids[i]).thenComparingInt(i -> i));
+            // If an ID occurs more than once, the last occurrence wins
+            long[] uniqueIds = new long[order.length];
+            int[] positions = new int[order.length];
+            int count = 0;
+            for (int k = 0; k < order.length; k++) {
+                if (count > 0 && uniqueIds[count - 1] == ids[order[k]]) {
+                    count--;
+                }
+                uniqueIds[count] = ids[order[k]];
+                positions[count] = order[k];
+                count++;
+            }
+            this.sortedIds = Arrays.copyOf(uniqueIds, count);
+            this.positionsById = Arrays.copyOf(positions, count);
+            this.index = new MovieIndex(columns);
+        }
+
+        Catalog(CatalogSnapshot snapshot) {
+            this(snapshot, snapshot.getMovies());
+        }
+
+        Catalog(List<Movie> movies) {
+            this(new MovieListColumns(movies), movies);
         }
+
+        MovieColumns getColumns() {
+            return columns;
+        }
+
+        /**
+         * Returns the movie IDs in ascending order; must not be modified.
+         */
+        long[] getSortedIds() {
+            return sortedIds;
+        }
+
+        /**
+         * Returns the position of each movie in {@link #getSortedIds()}; must not be modified.
+         */
+        int[] getPositionsById() {
+            return positionsById;
+        }
+    }
+
+    private final String catalogPath;
+    private final CatalogSnapshotManager snapshots;
+    private volatile Catalog catalog;
+    private volatile long lastLoadNanos;
+
+    public MovieService() {
+        this("", null);
+    }
+
+    /**
+     * @param catalogPath A catalog file to load instead of the bundled movies.json, or empty
+     * @param snapshots Provides a binary snapshot of the catalog, may be null
+     */
+    @Autowired
+    public MovieService(@Value("${catalog.path:}") String catalogPath, CatalogSnapshotManager snapshots) {
+        this.catalogPath = catalogPath;
+        this.snapshots = snapshots;
+        long startTime = System.nanoTime();
+        CatalogSnapshot snapshot = snapshots != null ? snapshots.getSnapshot() : null;
+        this.catalog = snapshot != null ? new Catalog(snapshot) : new Catalog(loadMovies(catalogPath));
+        this.lastLoadNanos = System.nanoTime() - startTime;
+    }
+
+    /**
+     * Serves a fixed list of movies, e.g. a generated catalog in benchmarks.
+     */
+    MovieService(List<Movie> movies) {
+        this.catalogPath = "";
+        this.snapshots = null;
+        this.catalog = new Catalog(movies);
     }
 
-    private List<Movie> loadMoviesFromJson() {
+    private List<Movie> loadMovies(String catalogPath) {
         List<Movie> movieList = new ArrayList<>();
         try {
-            InputStream inputStream = getClass().getClassLoader().getResourceAsStream("movies.json");
-            if (inputStream != null) {
-                Scanner scanner = new Scanner(inputStream, StandardCharsets.UTF_8.name());
-                String jsonContent = scanner.useDelimiter("\\A").next();
-                scanner.close();
-                
-                JSONArray moviesArray = new JSONArray(jsonContent);
-                for (int i = 0; i < moviesArray.length(); i++) {
-                    JSONObject movieObj = moviesArray.getJSONObject(i);
-                    movieList.add(new Movie(
-                        movieObj.getLong("id"),
-                        movieObj.getString("movieName"),
-                        movieObj.getString("director"),
-                        movieObj.getInt("year"),
-                        movieObj.getString("genre"),
-                        movieObj.getString("description"),
-                        movieObj.getInt("duration"),
-                        movieObj.getDouble("imdbRating")
-                    ));
-                }
-            }
+            MovieCatalogLoader.Result result = MovieCatalogLoader.loadCatalog(catalogPath, movieList::add);
+            logger.info("Loaded {} movies, skipped {} invalid records", result.getLoaded(), result.getSkipped());
         } catch (Exception e) {
-            logger.error("Failed to load movies from JSON: {}", e.getMessage());
+            logger.error("Failed to load movies, keeping the {} loaded so far: {}", movieList.size(), e.getMessage());
         }
         return movieList;
     }
 
+    /**
+     * Reads the catalog again and builds its indexes on the calling thread, then
+     * replaces the current catalog in one step. Unlike the initial load, a
+     * catalog that cannot be read completely is rejected and the current one kept.
+     *
+     * @return the number of movies in the new catalog
+     * @throws IOException if the catalog cannot be read or parsed
+     */
+    public int reload() throws IOException {
+        long startTime = System.nanoTime();
+        CatalogSnapshot snapshot = snapshots != null ? snapshots.refresh() : null;
+        Catalog reloaded;
+        if (snapshot != null) {
+            reloaded = new Catalog(snapshot);
+        } else {
+            List<Movie> movies = new ArrayList<>();
+            MovieCatalogLoader.loadCatalog(catalogPath, movies::add);
+            reloaded = new Catalog(movies);
+        }
+        this.catalog = reloaded;
+        this.lastLoadNanos = System.nanoTime() - startTime;
+        return reloaded.movies.size();
+    }
+
+    /**
+     * Returns how long the current catalog took to read and index.
+     */
+    public long getLastLoadNanos() {
+        return lastLoadNanos;
+    }
+
+    /**
+     * Returns the catalog in its original order. Movies of a snapshot are
+     * materialized as the list is read, so code that only needs IDs or
+     * attributes should use {@link #getSortedIds()} or {@link #getColumns()}.
+     */
     public List<Movie> getAllMovies() {
-        return movies;
+        return catalog.movies;
+    }
+
+    /**
+     * Returns the current catalog with its lookup tables, for building
+     * structures that must describe one catalog consistently.
+     */
+    Catalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Returns the current catalog by column, positions being those of {@link #getAllMovies()}.
+     */
+    MovieColumns getColumns() {
+        return catalog.columns;
+    }
+
+    /**
+     * Returns up to {@code limit} movies matching the query that follow the
+     * movie with ID {@code afterId} in the query's order, or the first ones if
+     * {@code afterId} is null. Returns an empty list if {@code afterId} is not
+     * in the catalog, e.g. because it was removed by a reload.
+     */
+    public List<Movie> findMoviesPage(MovieQuery query, Long afterId, int limit) {
+        Catalog current = catalog;
+        int afterPosition = -1;
+        if (afterId != null) {
+            int index = Arrays.binarySearch(current.sortedIds, afterId);
+            if (index < 0) {
+                return Collections.emptyList();
+            }
+            afterPosition = current.positionsById[index];
+        }
+        return current.index.findPage(query != null ? query : new MovieQuery(), afterPosition, limit);
+    }
+
+    /**
+     * Returns the distinct genres in the catalog, with compound genres split into their parts.
+     */
+    public List<String> getGenres() {
+        return catalog.index.getGenres();
+    }
+
+    /**
+     * Returns up to {@code limit} movies with an ID greater than {@code afterId}, in ID order.
+     */
+    public List<Movie> getMoviesAfter(long afterId, int limit) {
+        Catalog current = catalog;
+        int index = Arrays.binarySearch(current.sortedIds, afterId);
+        int from = index >= 0 ? index + 1 : -index - 1;
+        int to = (int) Math.min(current.sortedIds.length, (long) from + limit);
+        List<Movie> page = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            page.add(current.columns.getMovie(current.positionsById[i]));
+        }
+        return page;
+    }
+
+    /**
+     * Returns the IDs of the catalog's movies in ascending order. The array is the
+     * one lookups search, so it must not be modified.
+     */
+    long[] getSortedIds() {
+        return catalog.sortedIds;
     }
 
     public Optional<Movie> getMovieById(Long id) {
         if (id == null || id <= 0) {
             return Optional.empty();
         }
-        return Optional.ofNullable(movieMap.get(id));
+        Catalog current = catalog;
+        int position = Arrays.binarySearch(current.sortedIds, id);
+        return position >= 0 ? Optional.of(current.columns.getMovie(current.positionsById[position])) : Optional.empty();
     }
 }
@@ -0,0 +1,270 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * JSON API for movies and reviews. Responses are written field by field with a
+ * streaming {@link JsonGenerator}, so no document is built in memory.
+ *
+ * <p>Lists are paged with keyset cursors: pass the {@code nextCursor} of one
+ * page as {@code cursor} to get the next one. A movie cursor is the ID of the
+ * last movie returned and a review cursor the sequence number of the last
+ * review, written as a decimal number. {@code fields} restricts the
+ * movie fields written, e.g. {@code ?fields=movieName,year}. Invalid
+ * parameters are answered with 400 and unknown movies with 404, each with a
+ * JSON body giving the {@code status} and an {@code error} message.
+ */
+@RestController
+@RequestMapping("/api/movies")
+public class MoviesApiController {
+    private static final int DEFAULT_LIMIT = 50;
+    private static final int MAX_LIMIT = 500;
+    private static final String LIMIT_MESSAGE = "limit must be between 1 and " + MAX_LIMIT;
+
+    enum MovieField {
+        ID("id"), MOVIE_NAME("movieName"), DIRECTOR("director"), YEAR("year"), GENRE("genre"),
+        DESCRIPTION("description"), DURATION("duration"), IMDB_RATING("imdbRating");
+
+        private static final Map<String, MovieField> BY_JSON_NAME = new HashMap<>();
+
+        static {
+            for (MovieField field : values()) {
+                BY_JSON_NAME.put(field.jsonName, field);
+            }
+        }
+
+        private final String jsonName;
+
+        MovieField(String jsonName) {
+            this.jsonName = jsonName;
+        }
+
+        String getJsonName() {
+            return jsonName;
+        }
+
+        /**
+         * @return the field with the given JSON name, or null if there is none
+         */
+        static MovieField fromJsonName(String jsonName) {
+            return BY_JSON_NAME.get(jsonName);
+        }
+    }
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private ReviewIndex reviewIndex;
+
+    private final JsonFactory jsonFactory;
+
+    @Autowired
+    public MoviesApiController(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> getMovies(@RequestParam(value = "cursor", required = false) String cursor,
+                                                           @RequestParam(value = "limit", defaultValue = "" + DEFAULT_LIMIT) int limit,
+                                                           @RequestParam(value = "fields", required = false) String fields) {
+        EnumSet<MovieField> projection = parseFields(fields);
+        Long afterId = parseCursor(cursor);
+        if (projection == null) {
+            return error(HttpStatus.BAD_REQUEST, "Unknown field in fields: " + fields);
+        }
+        if (afterId == null) {
+            return error(HttpStatus.BAD_REQUEST, "Invalid cursor: " + cursor);
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            return error(HttpStatus.BAD_REQUEST, LIMIT_MESSAGE);
+        }
+        // Fetch one extra movie to know whether there is a next page
+        List<Movie> movies = movieService.getMoviesAfter(afterId, limit + 1);
+        boolean hasMore = movies.size() > limit;
+        List<Movie> page = hasMore ? movies.subList(0, limit) : movies;
+
+        return json(generator -> {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("movies");
+            for (Movie movie : page) {
+                writeMovie(generator, movie, projection);
+            }
+            generator.writeEndArray();
+            writeNextCursor(generator, hasMore ? page.get(page.size() - 1).getId() : null);
+            generator.writeEndObject();
+        });
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<StreamingResponseBody> getMovie(@PathVariable("id") Long movieId,
+                                                          @RequestParam(value = "fields", required = false) String fields) {
+        EnumSet<MovieField> projection = parseFields(fields);
+        if (projection == null) {
+            return error(HttpStatus.BAD_REQUEST, "Unknown field in fields: " + fields);
+        }
+        Optional<Movie> movieOpt = movieService.getMovieById(movieId);
+        if (!movieOpt.isPresent()) {
+            return error(HttpStatus.NOT_FOUND, "Movie not found: " + movieId);
+        }
+        return json(generator -> writeMovie(generator, movieOpt.get(), projection));
+    }
+
+    /**
+     * Returns a movie's reviews in the given order, oldest first by default. The
+     * cursor is the sequence number of the last review of the previous page, so
+     * pages stay consistent while reviews are added.
+     */
+    @GetMapping("/{id}/reviews")
+    public ResponseEntity<StreamingResponseBody> getReviews(@PathVariable("id") Long movieId,
+                                                            @RequestParam(value = "sort", required = false) String sort,
+                                                            @RequestParam(value = "cursor", required = false) String cursor,
+                                                            @RequestParam(value = "limit", defaultValue = "" + DEFAULT_LIMIT) int limit,
+                                                            HttpServletRequest request) {
+        ReviewIndex.Sort order = ReviewIndex.Sort.parse(sort, ReviewIndex.Sort.oldest);
+        Long after = cursor == null || cursor.isEmpty() ? Long.valueOf(-1) : parseCursor(cursor);
+        if (order == null) {
+            return error(HttpStatus.BAD_REQUEST, "Unknown sort: " + sort);
+        }
+        if (after == null || after > Integer.MAX_VALUE) {
+            return error(HttpStatus.BAD_REQUEST, "Invalid cursor: " + cursor);
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            return error(HttpStatus.BAD_REQUEST, LIMIT_MESSAGE);
+        }
+        if (!movieService.getMovieById(movieId).isPresent()) {
+            return error(HttpStatus.NOT_FOUND, "Movie not found: " + movieId);
+        }
+        // Only an existing session can hold reviews, so API calls never create one
+        ReviewIndex.Page page = reviewIndex.getPage(movieId, order,
+            after < 0 ? null : Integer.valueOf(after.intValue()), limit, request.getSession(false));
+
+        return json(generator -> {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("reviews");
+            for (Review review : page.getReviews()) {
+                writeReview(generator, review);
+            }
+            generator.writeEndArray();
+            writeNextCursor(generator, page.getNextCursor() != null ? Long.valueOf(page.getNextCursor()) : null);
+            generator.writeNumberField("total", page.getTotal());
+            generator.writeEndObject();
+        });
+    }
+
+    private interface JsonBody {
+        void write(JsonGenerator generator) throws IOException;
+    }
+
+    private ResponseEntity<StreamingResponseBody> json(JsonBody body) {
+        return json(HttpStatus.OK, body);
+    }
+
+    private ResponseEntity<StreamingResponseBody> json(HttpStatus status, JsonBody body) {
+        StreamingResponseBody stream = outputStream -> {
+            try (JsonGenerator generator = jsonFactory.createGenerator(outputStream, JsonEncoding.UTF8)) {
+                body.write(generator);
+            }
+        };
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(stream);
+    }
+
+    private ResponseEntity<StreamingResponseBody> error(HttpStatus status, String message) {
+        return json(status, generator -> {
+            generator.writeStartObject();
+            generator.writeNumberField("status", status.value());
+            generator.writeStringField("error", message);
+            generator.writeEndObject();
+        });
+    }
+
+    private static void writeMovie(JsonGenerator generator, Movie movie, EnumSet<MovieField> fields) throws IOException {
+        generator.writeStartObject();
+        for (MovieField field : fields) {
+            switch (field) {
+                case ID: generator.writeNumberField(field.getJsonName(), movie.getId()); break;
+                case MOVIE_NAME: generator.writeStringField(field.getJsonName(), movie.getMovieName()); break;
+                case DIRECTOR: generator.writeStringField(field.getJsonName(), movie.getDirector()); break;
+                case YEAR: generator.writeNumberField(field.getJsonName(), movie.getYear()); break;
+                case GENRE: generator.writeStringField(field.getJsonName(), movie.getGenre()); break;
+                case DESCRIPTION: generator.writeStringField(field.getJsonName(), movie.getDescription()); break;
+                case DURATION: generator.writeNumberField(field.getJsonName(), movie.getDuration()); break;
+                case IMDB_RATING: generator.writeNumberField(field.getJsonName(), movie.getImdbRating()); break;
+                default: break;
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeReview(JsonGenerator generator, Review review) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("userName", review.getUserName());
+        generator.writeStringField("avatarEmoji", review.getAvatarEmoji());
+        generator.writeNumberField("rating", review.getRating());
+        generator.writeStringField("comment", review.getComment());
+        generator.writeEndObject();
+    }
+
+    private static void writeNextCursor(JsonGenerator generator, Long next) throws IOException {
+        if (next != null) {
+            generator.writeStringField("nextCursor", Long.toString(next));
+        } else {
+            generator.writeNullField("nextCursor");
+        }
+    }
+
+    /**
+     * @return the requested fields, all fields if none were given, or null if a field is unknown
+     */
+    static EnumSet<MovieField> parseFields(String fields) {
+        if (fields == null || fields.trim().isEmpty()) {
+            return EnumSet.allOf(MovieField.class);
+        }
+        EnumSet<MovieField> projection = EnumSet.noneOf(MovieField.class);
+        for (String name : fields.split(",")) {
+            MovieField field = MovieField.fromJsonName(name.trim());
+            if (field == null) {
+                return null;
+            }
+            projection.add(field);
+        }
+        return projection;
+    }
+
+    /**
+     * @return the movie ID or review sequence number given as the cursor, 0 if
+     *         none was given, or null if it is not a non-negative number
+     */
+    static Long parseCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0L;
+        }
+        try {
+            long value = Long.parseLong(cursor);
+            return value >= 0 ? value : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -1,20 +1,26 @@
 package com.amazonaws.samples.qdevmovies.movies;
 
-import com.amazonaws.samples.qdevmovies.utils.MovieIconUtils;
+import com.amazonaws.samples.qdevmovies.utils.Avatars;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.util.UriComponentsBuilder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Controller
 public class MoviesController {
@@ -24,21 +30,114 @@ public class MoviesController {
     private MovieService movieService;
 
     @Autowired
-    private ReviewService reviewService;
+    private UserReviewStore userReviewStore;
+
+    @Autowired
+    private RatingService ratingService;
+
+    @Autowired
+    private RenderedPageCache pageCache;
+
+    @Autowired
+    private SearchIndex searchIndex;
+
+    @Autowired
+    private RecommendationService recommendationService;
+
+    @Autowired
+    private ReviewIndex reviewIndex;
+
+    @Autowired
+    private MoviesMetrics metrics;
+
+    @Autowired
+    private ReviewValidator reviewValidator;
+
+    @Value("${movies.page-size:24}")
+    private int pageSize = 24;
+
+    @Value("${reviews.page-size:10}")
+    private int reviewPageSize = 10;
 
     @GetMapping("/movies")
-    public String getMovies(org.springframework.ui.Model model) {
-        logger.info("Fetching movies");
-        model.addAttribute("movies", movieService.getAllMovies());
+    public String getMovies(MovieQuery query, org.springframework.ui.Model model) {
+        logger.debug("Fetching movies");
+        addMoviesPage(query, model);
+        model.addAttribute("genres", movieService.getGenres());
+        model.addAttribute("query", query);
+        return "movies";
+    }
+
+    /**
+     * Returns only the movie cards of a page and the link to the next one,
+     * which movies.js appends to the listing as the user scrolls.
+     */
+    @GetMapping("/movies/page")
+    public String getMoviesPage(MovieQuery query, org.springframework.ui.Model model) {
+        logger.debug("Fetching movies page");
+        addMoviesPage(query, model);
+        return "movies :: cards";
+    }
+
+    private void addMoviesPage(MovieQuery query, org.springframework.ui.Model model) {
+        // One extra movie tells whether there is a next page
+        List<Movie> movies = movieService.findMoviesPage(query, query.getAfter(), pageSize + 1);
+        boolean hasMore = movies.size() > pageSize;
+        List<Movie> page = hasMore ? movies.subList(0, pageSize) : movies;
+        model.addAttribute("movies", page);
+        model.addAttribute("ratings", ratingService.getAllRatingSummaries());
+        if (hasMore) {
+            long after = page.get(page.size() - 1).getId();
+            model.addAttribute("nextPageUrl", pageUrl("/movies", query, after));
+            model.addAttribute("nextFragmentUrl", pageUrl("/movies/page", query, after));
+        }
+    }
+
+    private static String pageUrl(String path, MovieQuery query, long after) {
+        UriComponentsBuilder url = UriComponentsBuilder.fromPath(path);
+        addParam(url, "genre", query.getGenre());
+        addParam(url, "director", query.getDirector());
+        addParam(url, "minYear", query.getMinYear());
+        addParam(url, "maxYear", query.getMaxYear());
+        addParam(url, "minDuration", query.getMinDuration());
+        addParam(url, "maxDuration", query.getMaxDuration());
+        addParam(url, "minRating", query.getMinRating());
+        addParam(url, "sort", query.getSort());
+        return url.queryParam("after", after).encode().build().toUriString();
+    }
+
+    private static void addParam(UriComponentsBuilder url, String name, Object value) {
+        if (value != null && !value.toString().trim().isEmpty()) {
+            url.queryParam(name, value);
+        }
+    }
+
+    @GetMapping("/movies/search")
+    public String searchMovies(@RequestParam(value = "q", required = false) String q,
+                               org.springframework.ui.Model model) {
+        logger.debug("Searching movies");
+        if (q == null || q.trim().isEmpty()) {
+            return "redirect:/movies";
+        }
+        List<Movie> movies = new ArrayList<>();
+        for (Long movieId : searchIndex.search(q)) {
+            movieService.getMovieById(movieId).ifPresent(movies::add);
+        }
+        model.addAttribute("movies", movies);
+        model.addAttribute("genres", movieService.getGenres());
+        model.addAttribute("query", new MovieQuery());
+        model.addAttribute("ratings", ratingService.getAllRatingSummaries());
+        model.addAttribute("searchQuery", q);
         return "movies";
     }
 
     @GetMapping("/movies/{id}/details")
     public String getMovieDetails(@PathVariable("id") Long movieId, 
+                                 @RequestParam(value = "sort", required = false) String sort,
+                                 @RequestParam(value = "after", required = false) Integer after,
                                  org.springframework.ui.Model model,
-                                 HttpSession session,
-                                 @RequestParam(value = "error", required = false) String error) {
-        logger.info("Fetching details for movie ID: {}", movieId);
+                                 HttpSession session) {
+        logger.debug("Fetching details for movie ID: {}", movieId);
         
         Optional<Movie> movieOpt = movieService.getMovieById(movieId);
         if (!movieOpt.isPresent()) {
@@ -50,101 +149,136 @@ public class MoviesController {
         
         Movie movie = movieOpt.get();
         
-        // Get user's reviews from session
-        String sessionKey = "movie_" + movieId + "_reviews";
-        @SuppressWarnings("unchecked")
-        List<Review> userReviews = session != null ? (List<Review>) session.getAttribute(sessionKey) : null;
-        if (userReviews == null) {
-            userReviews = new ArrayList<>();
-            logger.info("No user reviews found for movie {}", movieId);
-        } else {
-            logger.info("Retrieved {} user reviews for movie {}", userReviews.size(), movieId);
-        }
-        
-        // Get stored username from session
-        String storedUserName = session != null ? (String) session.getAttribute("user_name") : null;
-        
-        // Combine mock reviews with user reviews using our optimized ReviewService
-        List<Review> mockReviews = reviewService.getReviewsForMovie(movie.getId());
-        List<Review> allReviews = new ArrayList<>();
-        allReviews.addAll(mockReviews);
-        allReviews.addAll(userReviews);
-        
         // Add data to model for template
         model.addAttribute("movie", movie);
-        model.addAttribute("movieIcon", MovieIconUtils.getMovieIcon(movie.getMovieName()));
-        model.addAttribute("allReviews", allReviews);
-        model.addAttribute("storedUserName", storedUserName);
-        model.addAttribute("error", error);
+        addReviewPage(movie.getId(), sort, after, model, session);
+        model.addAttribute("reviewSorts", ReviewIndex.Sort.values());
+        model.addAttribute("rating", ratingService.getRatingSummary(movie.getId()));
+        model.addAttribute("recommendations", recommendationService.getRecommendations(movie.getId()));
         
         return "movie-details";
     }
 
+    /**
+     * Returns only the reviews of a page and the link to the next one, which
+     * movies.js appends to the detail page's review list as the user scrolls.
+     */
+    @GetMapping("/movies/{id}/reviews")
+    public String getReviewsPage(@PathVariable("id") Long movieId,
+                                 @RequestParam(value = "sort", required = false) String sort,
+                                 @RequestParam(value = "after", required = false) Integer after,
+                                 org.springframework.ui.Model model,
+                                 HttpSession session) {
+        logger.debug("Fetching reviews page for movie ID: {}", movieId);
+        addReviewPage(movieId, sort, after, model, session);
+        return "movie-details :: reviews";
+    }
+
+    private void addReviewPage(long movieId, String sort, Integer after,
+                               org.springframework.ui.Model model, HttpSession session) {
+        ReviewIndex.Sort order = ReviewIndex.Sort.parse(sort, ReviewIndex.Sort.newest);
+        if (order == null) {
+            order = ReviewIndex.Sort.newest;
+        }
+        ReviewIndex.Page page = reviewIndex.getPage(movieId, order, after, reviewPageSize, session);
+        model.addAttribute("reviewPage", page);
+        model.addAttribute("reviewSort", order);
+        if (page.getNextCursor() != null) {
+            model.addAttribute("nextReviewsUrl", reviewsUrl("/movies/" + movieId + "/details", order, page.getNextCursor()));
+            model.addAttribute("nextReviewsFragmentUrl", reviewsUrl("/movies/" + movieId + "/reviews", order, page.getNextCursor()));
+        }
+    }
+
+    private static String reviewsUrl(String path, ReviewIndex.Sort sort, int after) {
+        return UriComponentsBuilder.fromPath(path)
+            .queryParam("sort", sort.name())
+            .queryParam("after", after)
+            .build().toUriString();
+    }
+
+    /**
+     * Returns the per-session values the review form needs. They are kept out of
+     * the rendered detail page so that the page can be cached and shared. Every
+     * detail page asks for them, so visitors without a session do not get one.
+     */
+    @GetMapping("/session/user")
+    @ResponseBody
+    public Map<String, String> getSessionUser(HttpServletRequest request) {
+        Map<String, String> user = new HashMap<>();
+        UserSession state = UserSession.get(request.getSession(false));
+        user.put("userName", state != null ? state.getUserName() : null);
+        return user;
+    }
+
     @PostMapping("/movies/{id}/details")
     public String addReview(@PathVariable("id") Long movieId,
                            @RequestParam("userName") String userName,
                            @RequestParam("rating") int rating,
                            @RequestParam("comment") String comment,
                            HttpSession session) {
-        logger.info("Adding review for movie ID: {}", movieId);
+        logger.debug("Adding review for movie ID: {}", movieId);
         
-        // Validate and sanitize input parameters
-        if (userName == null || userName.trim().isEmpty()) {
+        // Validate and sanitize input parameters; trim() only copies when there is whitespace to remove
+        userName = userName == null ? "" : userName.trim();
+        comment = comment == null ? "" : comment.trim();
+        if (userName.isEmpty()) {
+            metrics.reviewRejected("user_name");
             return "redirect:/movies/" + movieId + "/details?error=Invalid+username";
         }
-        if (comment == null || comment.trim().isEmpty()) {
+        if (comment.isEmpty()) {
+            metrics.reviewRejected("comment");
             return "redirect:/movies/" + movieId + "/details?error=Invalid+comment";
         }
-        userName = userName.trim();
-        comment = comment.trim();
         
         // Use our optimized MovieService instead of static array
         Optional<Movie> movieOpt = movieService.getMovieById(movieId);
         if (!movieOpt.isPresent()) {
+            metrics.reviewRejected("movie_not_found");
             return "redirect:/movies/" + movieId + "/details?error=Movie+Not+Found";
         }
         
         // Create review request and validate using the intentional code smells
         ReviewRequest request = new ReviewRequest(userName, rating, comment);
-        String validationError = ReviewValidator.validateReview(request);
+        String validationError = reviewValidator.validate(request);
         
         if (validationError != null) {
+            metrics.reviewRejected(ReviewValidator.reasonOf(validationError));
             // Redirect back with error parameter
             return "redirect:/movies/" + movieId + "/details?error=" + 
                    java.net.URLEncoder.encode(validationError, java.nio.charset.StandardCharsets.UTF_8);
         }
         
-        // Get or create avatar for this session
-        String avatar = (String) session.getAttribute("user_avatar");
-        if (avatar == null) {
-            // Randomly select an avatar emoji
-            String[] avatars = {"👨", "👩", "🧑", "👴", "👵", "🧒"};
-            Random random = new Random();
-            avatar = avatars[random.nextInt(avatars.length)];
-            session.setAttribute("user_avatar", avatar);
+        // Get or create avatar for this session, and store username for future reviews
+        UserSession user = UserSession.getOrCreate(session);
+        if (user.getAvatar() == null) {
+            user.setAvatar(Avatars.random(ThreadLocalRandom.current()));
         }
-        
-        // Store username in session for future reviews
-        session.setAttribute("user_name", userName);
+        user.setUserName(userName);
+        user.saveTo(session);
         
         // Create new review
-        Review newReview = new Review(userName, avatar, (double) rating, comment);
+        Review newReview = new Review(userName, user.getAvatar(), (double) rating, comment);
         
-        // Get existing user reviews from session
-        String sessionKey = "movie_" + movieId + "_reviews";
-        @SuppressWarnings("unchecked")
-        List<Review> userReviews = session != null ? (List<Review>) session.getAttribute(sessionKey) : null;
-        if (userReviews == null) {
-            userReviews = new ArrayList<>();
-            logger.info("Creating new review list for movie {}", movieId);
-        } else {
-            logger.info("Found {} existing reviews for movie {}", userReviews.size(), movieId);
+        // Store the review using the configured store
+        try {
+            userReviewStore.addReview(movieId, newReview, session);
+        } catch (ReviewQueueFullException e) {
+            metrics.reviewRejected("queue_full");
+            logger.debug("Rejected review for movie {}: {}", movieId, e.getMessage());
+            return "redirect:/movies/" + movieId + "/details?error=" +
+                   java.net.URLEncoder.encode("Too many reviews are being submitted right now, please try again in a moment",
+                       java.nio.charset.StandardCharsets.UTF_8);
         }
-        
-        // Add new review to the list
-        userReviews.add(newReview);
-        session.setAttribute(sessionKey, userReviews);
-        logger.info("Added review. Total reviews for movie {}: {}", movieId, userReviews.size());
+        // Reviews kept in the session are private to it, so they must not change what everyone sees
+        if (userReviewStore.isShared()) {
+            ratingService.recordReview(movieId, newReview.getRating());
+            searchIndex.addReview(movieId, newReview);
+            recommendationService.addReview(movieId, newReview);
+            reviewIndex.addReview(movieId, newReview);
+        }
+        pageCache.invalidateMovie(movieId);
+        metrics.reviewAdded();
+        logger.info("Added review for movie {}", movieId);
         
         // Redirect back to details page (Post-Redirect-Get pattern)
         return "redirect:/movies/" + movieId + "/details?reviewAdded=true";
@@ -0,0 +1,132 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Application metrics beyond the per-endpoint request timers that Spring Boot
+ * records. Most meters read counters the components keep anyway, so they cost
+ * nothing until they are scraped; only review outcomes are counted here.
+ */
+@Component
+public class MoviesMetrics {
+
+    private final MeterRegistry registry;
+    private final Counter reviewsAdded;
+    private final Map<String, Counter> reviewsRejected = new ConcurrentHashMap<>();
+
+    public MoviesMetrics(MeterRegistry registry, MovieService movieService, RenderedPageCache pageCache,
+                         UserReviewStore userReviewStore, ReviewAdmission reviewAdmission,
+                         ObjectProvider<CatalogReloader> catalogReloader) {
+        this.registry = registry;
+        this.reviewsAdded = Counter.builder("movies.reviews.added")
+            .description("User reviews accepted")
+            .register(registry);
+
+        Gauge.builder("movies.catalog.movies", movieService, service -> service.getAllMovies().size())
+            .description("Movies in the current catalog")
+            .register(registry);
+        TimeGauge.builder("movies.catalog.load.time", movieService, TimeUnit.NANOSECONDS, MovieService::getLastLoadNanos)
+            .description("Time taken to read and index the current catalog")
+            .register(registry);
+        catalogReloader.ifAvailable(reloader -> {
+            FunctionCounter.builder("movies.catalog.reloads", reloader, r -> r.getStats().get("reloads"))
+                .description("Successful catalog reloads")
+                .register(registry);
+            FunctionCounter.builder("movies.catalog.reload.failures", reloader, r -> r.getStats().get("failures"))
+                .description("Catalog reloads rejected because the catalog could not be read")
+                .register(registry);
+        });
+
+        FunctionCounter.builder("movies.page.cache.requests", pageCache, cache -> cache.getStats().get("hits"))
+            .tag("result", "hit")
+            .description("Rendered page cache lookups")
+            .register(registry);
+        FunctionCounter.builder("movies.page.cache.requests", pageCache, cache -> cache.getStats().get("misses"))
+            .tag("result", "miss")
+            .description("Rendered page cache lookups")
+            .register(registry);
+        Gauge.builder("movies.page.cache.hit.ratio", pageCache, MoviesMetrics::hitRatio)
+            .description("Share of rendered page cache lookups served from the cache since startup")
+            .register(registry);
+        FunctionCounter.builder("movies.page.cache.evictions", pageCache, cache -> cache.getStats().get("evictions"))
+            .register(registry);
+        Gauge.builder("movies.page.cache.bytes", pageCache, cache -> cache.getStats().get("bytes"))
+            .baseUnit("bytes")
+            .register(registry);
+
+        if (userReviewStore instanceof LogUserReviewStore) {
+            LogUserReviewStore logStore = (LogUserReviewStore) userReviewStore;
+            Gauge.builder("movies.reviews.write.queue.depth", logStore, LogUserReviewStore::getQueueDepth)
+                .description("Accepted reviews waiting to be written to the review log")
+                .register(registry);
+            FunctionTimer.builder("movies.reviews.write.flush", logStore, LogUserReviewStore::getFlushCount,
+                    LogUserReviewStore::getFlushTotalNanos, TimeUnit.NANOSECONDS)
+                .description("Batched writes of queued reviews to the review log")
+                .register(registry);
+            TimeGauge.builder("movies.reviews.write.flush.max", logStore, TimeUnit.NANOSECONDS, LogUserReviewStore::getMaxFlushNanos)
+                .description("Longest batched write since startup")
+                .register(registry);
+            FunctionCounter.builder("movies.reviews.write.records", logStore, LogUserReviewStore::getFlushedRecords)
+                .description("Reviews written to the review log")
+                .register(registry);
+        }
+        Gauge.builder("movies.reviews.in.flight", reviewAdmission, ReviewAdmission::getInFlight)
+            .description("Review submissions being processed")
+            .register(registry);
+        Gauge.builder("movies.reviews.rate.limit.clients", reviewAdmission, ReviewAdmission::getTrackedClients)
+            .description("Clients with a review rate limit bucket")
+            .register(registry);
+        FunctionCounter.builder("movies.reviews.rate.limit.evictions", reviewAdmission, ReviewAdmission::getEvictions)
+            .description("Idle rate limit buckets removed to bound memory")
+            .register(registry);
+        FunctionTimer.builder("movies.sessions.serialization", UserSession.class, type -> UserSession.getSerializations(),
+                type -> UserSession.getSerializationNanos(), TimeUnit.NANOSECONDS)
+            .description("Sessions serialized, e.g. to be stored with session.store: file")
+            .register(registry);
+        FunctionCounter.builder("movies.sessions.serialized.bytes", UserSession.class, type -> UserSession.getSerializedBytes())
+            .baseUnit("bytes")
+            .description("Encoded size of serialized sessions")
+            .register(registry);
+        if (userReviewStore instanceof SessionUserReviewStore) {
+            SessionUserReviewStore sessionStore = (SessionUserReviewStore) userReviewStore;
+            FunctionCounter.builder("movies.session.reviews.stored", sessionStore, SessionUserReviewStore::getStoredReviews)
+                .description("Reviews stored in HTTP sessions")
+                .register(registry);
+            FunctionCounter.builder("movies.session.reviews.added.bytes", sessionStore, SessionUserReviewStore::getAddedBytes)
+                .baseUnit("bytes")
+                .description("Estimated size of all reviews added to HTTP sessions, including expired ones")
+                .register(registry);
+        }
+    }
+
+    private static double hitRatio(RenderedPageCache cache) {
+        Map<String, Long> stats = cache.getStats();
+        long lookups = stats.get("hits") + stats.get("misses");
+        return lookups == 0 ? 0 : (double) stats.get("hits") / lookups;
+    }
+
+    public void reviewAdded() {
+        reviewsAdded.increment();
+    }
+
+    /**
+     * @param reason a short code from a fixed set, such as {@link ReviewValidator#reasonOf}
+     */
+    public void reviewRejected(String reason) {
+        reviewsRejected.computeIfAbsent(reason, key -> Counter.builder("movies.reviews.rejected")
+            .tag("reason", key)
+            .description("User reviews rejected, by reason")
+            .register(registry)).increment();
+    }
+}
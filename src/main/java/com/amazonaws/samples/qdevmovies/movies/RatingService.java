@@ -0,0 +1,59 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maintains a {@link RatingSummary} per movie. Summaries are seeded from the
+ * mock reviews and the shared user reviews at startup and then updated as new
+ * reviews are accepted, so pages never scan review lists to show averages.
+ */
+@Service
+public class RatingService {
+    private static final Logger logger = LogManager.getLogger(RatingService.class);
+
+    private final Map<Long, RatingSummary> summaries = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RatingService(MovieService movieService, ReviewService reviewService, UserReviewStore userReviewStore) {
+        for (long movieId : movieService.getSortedIds()) {
+            summaries.put(movieId, new RatingSummary());
+        }
+        int seeded = seed(reviewService.getAllReviews()) + seed(userReviewStore.getAllSharedReviews());
+        logger.info("Seeded rating summaries for {} movies from {} reviews", summaries.size(), seeded);
+    }
+
+    private int seed(Map<Long, List<Review>> reviewsByMovie) {
+        int seeded = 0;
+        for (Map.Entry<Long, List<Review>> entry : reviewsByMovie.entrySet()) {
+            for (Review review : entry.getValue()) {
+                recordReview(entry.getKey(), review.getRating());
+                seeded++;
+            }
+        }
+        return seeded;
+    }
+
+    public void recordReview(long movieId, double rating) {
+        summaries.computeIfAbsent(movieId, id -> new RatingSummary()).record(rating);
+    }
+
+    public RatingSummary getRatingSummary(long movieId) {
+        RatingSummary summary = summaries.get(movieId);
+        return summary != null ? summary : new RatingSummary();
+    }
+
+    /**
+     * Returns a live, read-only view of all summaries keyed by movie ID.
+     */
+    public Map<Long, RatingSummary> getAllRatingSummaries() {
+        return Collections.unmodifiableMap(summaries);
+    }
+}
@@ -0,0 +1,61 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.RatingFormat;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live review count, average and 1-5 star histogram for one movie. Updated
+ * incrementally as reviews are accepted; reads never lock, so a reader racing
+ * a writer may see the count and the total of different moments.
+ */
+public class RatingSummary {
+    public static final int MAX_STARS = 5;
+
+    private final LongAdder count = new LongAdder();
+    // Ratings are kept in half-star units so that 4.5 stars sums exactly
+    private final LongAdder halfStarTotal = new LongAdder();
+    private final LongAdder[] histogram = new LongAdder[MAX_STARS];
+
+    public RatingSummary() {
+        for (int i = 0; i < MAX_STARS; i++) {
+            histogram[i] = new LongAdder();
+        }
+    }
+
+    void record(double rating) {
+        long halfStars = Math.round(rating * 2);
+        int stars = (int) Math.max(1, Math.min(MAX_STARS, Math.round(rating)));
+        histogram[stars - 1].increment();
+        halfStarTotal.add(halfStars);
+        count.increment();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getAverage() {
+        long reviews = count.sum();
+        return reviews == 0 ? 0.0 : halfStarTotal.sum() / 2.0 / reviews;
+    }
+
+    /**
+     * Returns the average with one decimal, e.g. "4.5".
+     */
+    public String getAverageText() {
+        return RatingFormat.format(getAverage());
+    }
+
+    /**
+     * Returns the number of reviews per star, index 0 holding one-star reviews.
+     * Ratings are rounded to the nearest star.
+     */
+    public long[] getHistogram() {
+        long[] counts = new long[MAX_STARS];
+        for (int i = 0; i < MAX_STARS; i++) {
+            counts[i] = histogram[i].sum();
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,25 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class RatingsController {
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private RatingService ratingService;
+
+    @GetMapping("/movies/{id}/ratings")
+    public ResponseEntity<RatingSummary> getRatings(@PathVariable("id") Long movieId) {
+        if (!movieService.getMovieById(movieId).isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(ratingService.getRatingSummary(movieId));
+    }
+}
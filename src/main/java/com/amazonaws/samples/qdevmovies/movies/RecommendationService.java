@@ -0,0 +1,647 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Recommends movies similar to a given one. Similarity blends how many users
+ * reviewed both movies (cosine over their reviewers) with a shared director and
+ * overlapping genres. Each movie's top K neighbors are precomputed into one flat
+ * int array, K slots per movie, so a recommendation list costs a binary search
+ * and K movie lookups. The model holds movie IDs and attributes only; movies are
+ * resolved through {@link MovieService} when a list is read. After a catalog
+ * reload, the previous neighbors of movies still in the catalog are served
+ * until the neighbors are recomputed.
+ *
+ * <p>Comparing every pair of movies does not scale, so a movie is only scored
+ * against candidates: movies it shares reviewers with, and the movies closest in
+ * year among those by the same director and those sharing a genre.
+ *
+ * <p>New reviews are applied in batches on a background thread, which rescores
+ * only the movies whose reviewers changed. Their new rows are published in a map
+ * consulted before the flat array, and folded into a new array once it grows.
+ */
+@Service
+public class RecommendationService {
+    private static final Logger logger = LogManager.getLogger(RecommendationService.class);
+
+    static final double CO_REVIEW_WEIGHT = 1.0;
+    static final double DIRECTOR_WEIGHT = 0.3;
+    static final double GENRE_WEIGHT = 0.2;
+    // Candidates taken on each side of a movie among those sharing its director or a genre
+    static final int CANDIDATE_WINDOW = 10;
+    // Prolific reviewers say little about any one pair of movies, and would cost pairs quadratically
+    static final int MAX_CO_REVIEWS_PER_USER = 200;
+    private static final int MIN_FOLD_ROWS = 1024;
+
+    /**
+     * Movies grouped by a key, ordered by year and then row within a group.
+     * Entries pack the year and the row into one long.
+     */
+    private static final class Grouping {
+        final int[] starts;
+        final long[] entries;
+
+        Grouping(int[] keyStarts, int[] keys, int keyCount, int[] years) {
+            starts = new int[keyCount + 1];
+            for (int key : keys) {
+                starts[key + 1]++;
+            }
+            for (int key = 0; key < keyCount; key++) {
+                starts[key + 1] += starts[key];
+            }
+            entries = new long[keys.length];
+            int[] next = Arrays.copyOf(starts, keyCount);
+            int rows = keyStarts.length - 1;
+            for (int row = 0; row < rows; row++) {
+                for (int i = keyStarts[row]; i < keyStarts[row + 1]; i++) {
+                    entries[next[keys[i]]++] = entry(years[row], row);
+                }
+            }
+            for (int key = 0; key < keyCount; key++) {
+                Arrays.sort(entries, starts[key], starts[key + 1]);
+            }
+        }
+
+        static long entry(int year, int row) {
+            return (long) year << 32 | row;
+        }
+    }
+
+    /**
+     * Movie attributes by row, rows being movies in ID order, and the neighbor rows.
+     */
+    private static final class Model {
+        final long[] ids;
+        final int[] years;
+        final int[] directors;
+        // Genre parts of row r are genres[genreStarts[r]] to genres[genreStarts[r + 1] - 1], sorted
+        final int[] genreStarts;
+        final int[] genres;
+        final Grouping byDirector;
+        final Grouping byGenre;
+        final int k;
+        // K rows per movie, best first, -1 past the last neighbor
+        final int[] neighbors;
+        // Rows rescored since the neighbors array was built; only the updater thread writes
+        final Map<Integer, int[]> updatedRows = new ConcurrentHashMap<>();
+
+        Model(long[] ids, int[] years, int[] directors, int[] genreStarts, int[] genres,
+              Grouping byDirector, Grouping byGenre, int k, int[] neighbors) {
+            this.ids = ids;
+            this.years = years;
+            this.directors = directors;
+            this.genreStarts = genreStarts;
+            this.genres = genres;
+            this.byDirector = byDirector;
+            this.byGenre = byGenre;
+            this.k = k;
+            this.neighbors = neighbors;
+        }
+
+        Model withNeighbors(int[] rebuilt) {
+            return new Model(ids, years, directors, genreStarts, genres, byDirector, byGenre, k, rebuilt);
+        }
+
+        int[] row(int row) {
+            int[] updated = updatedRows.get(row);
+            return updated != null ? updated : Arrays.copyOfRange(neighbors, row * k, row * k + k);
+        }
+    }
+
+    /**
+     * Which users reviewed which movies, and how many reviewers each pair of
+     * movies shares. Confined to the updater thread once built.
+     */
+    private static final class CoReviews {
+        private final Map<String, Rows> rowsByUser = new HashMap<>();
+        private final int[] reviewers;
+        // Created for a row when it first shares a reviewer
+        private final Partners[] partners;
+
+        CoReviews(int rows) {
+            reviewers = new int[rows];
+            partners = new Partners[rows];
+        }
+
+        /**
+         * Records that a user reviewed a movie.
+         * @return false if the user had reviewed it before or reviewed too many movies
+         */
+        boolean add(int row, String user) {
+            Rows rows = rowsByUser.computeIfAbsent(user, key -> new Rows());
+            if (rows.size >= MAX_CO_REVIEWS_PER_USER || rows.contains(row)) {
+                return false;
+            }
+            for (int i = 0; i < rows.size; i++) {
+                int other = rows.rows[i];
+                createPartners(row).increment(other);
+                createPartners(other).increment(row);
+            }
+            rows.add(row);
+            reviewers[row]++;
+            return true;
+        }
+
+        private Partners createPartners(int row) {
+            if (partners[row] == null) {
+                partners[row] = new Partners();
+            }
+            return partners[row];
+        }
+
+        Partners partners(int row) {
+            return partners[row] != null ? partners[row] : Partners.NONE;
+        }
+
+        double cosine(int row, int other, int count) {
+            return count / Math.sqrt((double) reviewers[row] * reviewers[other]);
+        }
+    }
+
+    /**
+     * The rows one user reviewed, in review order.
+     */
+    private static final class Rows {
+        int[] rows = new int[4];
+        int size;
+
+        boolean contains(int row) {
+            for (int i = 0; i < size; i++) {
+                if (rows[i] == row) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void add(int row) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            rows[size++] = row;
+        }
+    }
+
+    /**
+     * Shared reviewer counts of one movie by partner row, in an open-addressing
+     * table of primitive slots so that no pair is boxed.
+     */
+    private static final class Partners {
+        static final Partners NONE = new Partners(0);
+        private static final int EMPTY = -1;
+
+        // Partner rows by slot, EMPTY for a free slot, with their counts
+        int[] rows;
+        int[] counts;
+        int size;
+
+        Partners() {
+            this(4);
+        }
+
+        private Partners(int capacity) {
+            rows = new int[capacity];
+            counts = new int[capacity];
+            Arrays.fill(rows, EMPTY);
+        }
+
+        int get(int row) {
+            if (size == 0) {
+                return 0;
+            }
+            int slot = slot(row);
+            return rows[slot] == row ? counts[slot] : 0;
+        }
+
+        void increment(int row) {
+            // Keep the table at most half full, so probe runs stay short
+            if ((size + 1) * 2 > rows.length) {
+                grow();
+            }
+            int slot = slot(row);
+            if (rows[slot] == EMPTY) {
+                rows[slot] = row;
+                size++;
+            }
+            counts[slot]++;
+        }
+
+        private int slot(int row) {
+            int mask = rows.length - 1;
+            int hash = row * 0x9E3779B9;
+            int slot = (hash ^ hash >>> 16) & mask;
+            while (rows[slot] != EMPTY && rows[slot] != row) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            int[] oldRows = rows;
+            int[] oldCounts = counts;
+            rows = new int[oldRows.length * 2];
+            counts = new int[oldRows.length * 2];
+            Arrays.fill(rows, EMPTY);
+            for (int i = 0; i < oldRows.length; i++) {
+                if (oldRows[i] != EMPTY) {
+                    int slot = slot(oldRows[i]);
+                    rows[slot] = oldRows[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * The best candidates seen so far for one movie, best first.
+     */
+    private static final class TopK {
+        final int[] rows;
+        final double[] scores;
+        final int[] yearGaps;
+        int size;
+
+        TopK(int k) {
+            rows = new int[k];
+            scores = new double[k];
+            yearGaps = new int[k];
+        }
+
+        void offer(int row, double score, int yearGap) {
+            for (int i = 0; i < size; i++) {
+                if (rows[i] == row) {
+                    return;
+                }
+            }
+            int position = size;
+            while (position > 0 && better(score, yearGap, row, position - 1)) {
+                position--;
+            }
+            if (position == rows.length) {
+                return;
+            }
+            int end = Math.min(size, rows.length - 1);
+            System.arraycopy(rows, position, rows, position + 1, end - position);
+            System.arraycopy(scores, position, scores, position + 1, end - position);
+            System.arraycopy(yearGaps, position, yearGaps, position + 1, end - position);
+            rows[position] = row;
+            scores[position] = score;
+            yearGaps[position] = yearGap;
+            size = end + 1;
+        }
+
+        // Ties go to the movie closest in year, then the lowest ID
+        private boolean better(double score, int yearGap, int row, int i) {
+            if (score != scores[i]) {
+                return score > scores[i];
+            }
+            return yearGap != yearGaps[i] ? yearGap < yearGaps[i] : row < rows[i];
+        }
+
+        void writeTo(int[] target, int offset) {
+            System.arraycopy(rows, 0, target, offset, size);
+            Arrays.fill(target, offset + size, offset + rows.length, -1);
+        }
+    }
+
+    private final MovieService movieService;
+    private final ReviewService reviewService;
+    private final UserReviewStore userReviewStore;
+    private final RenderedPageCache pageCache;
+    private final int k;
+
+    private final ExecutorService updater;
+    private final Queue<Object[]> pendingReviews = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    private volatile Model model;
+    // Only the updater thread touches this once the constructor returns
+    private CoReviews coReviews;
+
+    @Autowired
+    public RecommendationService(MovieService movieService, ReviewService reviewService,
+                                 UserReviewStore userReviewStore, RenderedPageCache pageCache,
+                                 @Value("${recommendations.neighbors:6}") int k) {
+        this.movieService = movieService;
+        this.reviewService = reviewService;
+        this.userReviewStore = userReviewStore;
+        this.pageCache = pageCache;
+        this.k = k;
+        this.updater = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "recommendations");
+            thread.setDaemon(true);
+            return thread;
+        });
+        build();
+    }
+
+    /**
+     * Computes every movie's neighbors from the current catalog and reviews.
+     */
+    private void build() {
+        long start = System.nanoTime();
+        MovieService.Catalog catalog = movieService.getCatalog();
+        MovieColumns movies = catalog.getColumns();
+        // Rows are movies in ID order, so the IDs are those movie lookups search
+        long[] ids = catalog.getSortedIds();
+        int[] positions = catalog.getPositionsById();
+        int size = ids.length;
+
+        // Genre parts of each distinct genre value, sorted
+        Map<String, Integer> genreKeys = new HashMap<>();
+        int[][] genreParts = new int[movies.getGenreCount()][];
+        for (int g = 0; g < genreParts.length; g++) {
+            String genre = movies.getGenreName(g);
+            int[] parts = new int[0];
+            for (String part : genre == null ? new String[0] : genre.split("/")) {
+                String name = part.trim();
+                if (!name.isEmpty()) {
+                    parts = Arrays.copyOf(parts, parts.length + 1);
+                    parts[parts.length - 1] = key(genreKeys, name);
+                }
+            }
+            Arrays.sort(parts);
+            genreParts[g] = parts;
+        }
+
+        int[] years = new int[size];
+        int[] directors = new int[size];
+        int[] directorStarts = new int[size + 1];
+        int[] genreStarts = new int[size + 1];
+        int[] genres = new int[size * 2];
+        int genreCount = 0;
+        for (int row = 0; row < size; row++) {
+            int position = positions[row];
+            years[row] = Math.max(0, movies.getYear(position));
+            directors[row] = movies.getDirector(position);
+            directorStarts[row + 1] = row + 1;
+            int[] parts = genreParts[movies.getGenre(position)];
+            if (genreCount + parts.length > genres.length) {
+                genres = Arrays.copyOf(genres, genres.length * 2 + parts.length);
+            }
+            System.arraycopy(parts, 0, genres, genreCount, parts.length);
+            genreCount += parts.length;
+            genreStarts[row + 1] = genreCount;
+        }
+        genres = Arrays.copyOf(genres, genreCount);
+        Model built = new Model(ids, years, directors, genreStarts, genres,
+            new Grouping(directorStarts, directors, movies.getDirectorCount(), years),
+            new Grouping(genreStarts, genres, genreKeys.size(), years),
+            k, new int[size * k]);
+
+        CoReviews reviews = new CoReviews(size);
+        addReviews(built, reviews, reviewService.getAllReviews());
+        if (userReviewStore.isShared()) {
+            addReviews(built, reviews, userReviewStore.getAllSharedReviews());
+        }
+
+        TopK top = new TopK(k);
+        for (int row = 0; row < size; row++) {
+            score(built, reviews, row, top);
+            top.writeTo(built.neighbors, row * k);
+        }
+        coReviews = reviews;
+        model = built;
+        logger.info("Computed {} recommendations for each of {} movies in {} ms", k, size,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private static int key(Map<String, Integer> keys, String value) {
+        Integer key = keys.get(value);
+        if (key == null) {
+            key = keys.size();
+            keys.put(value, key);
+        }
+        return key;
+    }
+
+    private static void addReviews(Model model, CoReviews target, Map<Long, List<Review>> reviewsByMovie) {
+        for (Map.Entry<Long, List<Review>> entry : reviewsByMovie.entrySet()) {
+            int row = Arrays.binarySearch(model.ids, entry.getKey());
+            if (row < 0) {
+                continue;
+            }
+            for (Review review : entry.getValue()) {
+                String user = userKey(review);
+                if (user != null) {
+                    target.add(row, user);
+                }
+            }
+        }
+    }
+
+    private static String userKey(Review review) {
+        String name = review.getUserName();
+        if (name == null || name.trim().isEmpty()) {
+            return null;
+        }
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Collects the best neighbors of one movie into {@code top}.
+     */
+    private static void score(Model model, CoReviews reviews, int row, TopK top) {
+        top.size = 0;
+        int[] partners = reviews.partners(row).rows;
+        for (int partner : partners) {
+            if (partner >= 0) {
+                offer(model, reviews, row, partner, top);
+            }
+        }
+        offerWindow(model, reviews, model.byDirector, model.directors[row], row, top);
+        for (int i = model.genreStarts[row]; i < model.genreStarts[row + 1]; i++) {
+            offerWindow(model, reviews, model.byGenre, model.genres[i], row, top);
+        }
+    }
+
+    private static void offerWindow(Model model, CoReviews reviews, Grouping grouping, int key, int row, TopK top) {
+        int start = grouping.starts[key];
+        int end = grouping.starts[key + 1];
+        int rank = Arrays.binarySearch(grouping.entries, start, end, Grouping.entry(model.years[row], row));
+        for (int i = Math.max(start, rank - CANDIDATE_WINDOW); i < Math.min(end, rank + CANDIDATE_WINDOW + 1); i++) {
+            if (i != rank) {
+                offer(model, reviews, row, (int) grouping.entries[i], top);
+            }
+        }
+    }
+
+    private static void offer(Model model, CoReviews reviews, int row, int other, TopK top) {
+        double score = 0;
+        int shared = reviews.partners(row).get(other);
+        if (shared > 0) {
+            score += CO_REVIEW_WEIGHT * reviews.cosine(row, other, shared);
+        }
+        if (model.directors[row] == model.directors[other]) {
+            score += DIRECTOR_WEIGHT;
+        }
+        score += GENRE_WEIGHT * genreOverlap(model, row, other);
+        if (score > 0) {
+            top.offer(other, score, Math.abs(model.years[row] - model.years[other]));
+        }
+    }
+
+    /**
+     * Jaccard index of the genre parts of two movies, both sorted.
+     */
+    private static double genreOverlap(Model model, int row, int other) {
+        int i = model.genreStarts[row];
+        int iEnd = model.genreStarts[row + 1];
+        int j = model.genreStarts[other];
+        int jEnd = model.genreStarts[other + 1];
+        int union = (iEnd - i) + (jEnd - j);
+        int common = 0;
+        while (i < iEnd && j < jEnd) {
+            int a = model.genres[i];
+            int b = model.genres[j];
+            if (a == b) {
+                common++;
+                i++;
+                j++;
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        union -= common;
+        return union == 0 ? 0 : (double) common / union;
+    }
+
+    /**
+     * Returns up to K movies similar to the given one, most similar first.
+     */
+    public List<Movie> getRecommendations(long movieId) {
+        Model current = model;
+        List<Movie> recommendations = new ArrayList<>(k);
+        int row = Arrays.binarySearch(current.ids, movieId);
+        if (row < 0) {
+            return recommendations;
+        }
+        int[] updated = current.updatedRows.get(row);
+        int[] neighbors = updated != null ? updated : current.neighbors;
+        int offset = updated != null ? 0 : row * current.k;
+        for (int i = offset; i < offset + current.k && neighbors[i] >= 0; i++) {
+            // A movie removed by a reload stays in the model until it is rebuilt
+            Optional<Movie> movie = movieService.getMovieById(current.ids[neighbors[i]]);
+            if (movie.isPresent()) {
+                recommendations.add(movie.get());
+            }
+        }
+        return recommendations;
+    }
+
+    /**
+     * Takes a newly accepted review into account. Returns at once; affected
+     * recommendations change shortly after, on a background thread.
+     */
+    public void addReview(long movieId, Review review) {
+        String user = userKey(review);
+        if (user == null) {
+            return;
+        }
+        pendingReviews.add(new Object[] {movieId, user});
+        if (drainScheduled.compareAndSet(false, true)) {
+            updater.execute(this::applyPendingReviews);
+        }
+    }
+
+    private void applyPendingReviews() {
+        drainScheduled.set(false);
+        Model current = model;
+        Set<Integer> changed = new LinkedHashSet<>();
+        Object[] pending;
+        while ((pending = pendingReviews.poll()) != null) {
+            int row = Arrays.binarySearch(current.ids, (Long) pending[0]);
+            if (row >= 0 && coReviews.add(row, (String) pending[1])) {
+                changed.add(row);
+                // The cosine of every pair with this movie depends on its reviewer count
+                for (int partner : coReviews.partners(row).rows) {
+                    if (partner >= 0) {
+                        changed.add(partner);
+                    }
+                }
+            }
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        TopK top = new TopK(k);
+        List<String> paths = new ArrayList<>();
+        for (int row : changed) {
+            score(current, coReviews, row, top);
+            int[] rescored = new int[k];
+            top.writeTo(rescored, 0);
+            if (!Arrays.equals(rescored, current.row(row))) {
+                current.updatedRows.put(row, rescored);
+                paths.add("/movies/" + current.ids[row] + "/details");
+            }
+        }
+        if (current.updatedRows.size() > Math.max(MIN_FOLD_ROWS, current.ids.length / 16)) {
+            int[] folded = current.neighbors.clone();
+            for (Map.Entry<Integer, int[]> updated : current.updatedRows.entrySet()) {
+                System.arraycopy(updated.getValue(), 0, folded, updated.getKey() * k, k);
+            }
+            model = current.withNeighbors(folded);
+        }
+        if (!paths.isEmpty()) {
+            pageCache.invalidate(paths.toArray(new String[0]));
+        }
+        logger.debug("Rescored {} movies, {} with new recommendations", changed.size(), paths.size());
+    }
+
+    /**
+     * Recomputes every movie's neighbors, e.g. after the catalog was reloaded.
+     * Recommendations are served from the previous model until it completes.
+     * @throws RuntimeException if the build failed, in which case the previous model is kept
+     */
+    public void rebuild() {
+        try {
+            updater.submit(this::build).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Failed to rebuild recommendations", cause);
+        }
+    }
+
+    /**
+     * Waits until reviews added so far have been applied.
+     */
+    void awaitUpdates() throws InterruptedException, ExecutionException {
+        updater.submit(() -> { }).get();
+    }
+
+    @PreDestroy
+    public void close() {
+        updater.shutdownNow();
+    }
+}
@@ -0,0 +1,159 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache of rendered HTML pages keyed by route. The cache is limited
+ * both by number of entries and by total body size; least recently used pages
+ * are evicted first.
+ *
+ * <p>Pages are only stored if no invalidation happened while they were being
+ * rendered, so a render that raced a new review never repopulates stale HTML.
+ */
+@Component
+public class RenderedPageCache {
+
+    public static class Page {
+        private final String path;
+        private final byte[] body;
+        private final String contentType;
+        private final String etag;
+
+        Page(String path, byte[] body, String contentType, String etag) {
+            this.path = path;
+            this.body = body;
+            this.contentType = contentType;
+            this.etag = etag;
+        }
+
+        public String getPath() { return path; }
+        public byte[] getBody() { return body; }
+        public String getContentType() { return contentType; }
+        public String getEtag() { return etag; }
+    }
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Page> pages = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong generation = new AtomicLong();
+
+    // Guarded by pages
+    private long totalBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public RenderedPageCache(@Value("${page-cache.max-entries:1000}") int maxEntries,
+                             @Value("${page-cache.max-bytes:16777216}") long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    public Page get(String key) {
+        Page page;
+        synchronized (pages) {
+            page = pages.get(key);
+        }
+        if (page != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return page;
+    }
+
+    /**
+     * Returns a token to pass to {@link #put} for a page about to be rendered.
+     */
+    public long beginRender() {
+        return generation.get();
+    }
+
+    /**
+     * Stores a rendered page unless the cache was invalidated since {@code renderToken}
+     * was taken, or the page alone exceeds the byte limit.
+     */
+    public void put(String key, Page page, long renderToken) {
+        if (page.getBody().length > maxBytes) {
+            return;
+        }
+        synchronized (pages) {
+            if (generation.get() != renderToken) {
+                return;
+            }
+            Page previous = pages.put(key, page);
+            if (previous != null) {
+                totalBytes -= previous.getBody().length;
+            }
+            totalBytes += page.getBody().length;
+            Iterator<Page> eldest = pages.values().iterator();
+            while ((pages.size() > maxEntries || totalBytes > maxBytes) && eldest.hasNext()) {
+                totalBytes -= eldest.next().getBody().length;
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Drops every cached page whose path is one of the given paths, whatever its query string.
+     */
+    public void invalidate(String... paths) {
+        synchronized (pages) {
+            generation.incrementAndGet();
+            Iterator<Page> it = pages.values().iterator();
+            while (it.hasNext()) {
+                Page page = it.next();
+                for (String path : paths) {
+                    if (page.getPath().equals(path)) {
+                        totalBytes -= page.getBody().length;
+                        it.remove();
+                        invalidations.increment();
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the pages showing a movie's reviews or ratings.
+     */
+    public void invalidateMovie(long movieId) {
+        invalidate("/movies", "/movies/page", "/movies/" + movieId + "/details", "/movies/" + movieId + "/reviews");
+    }
+
+    /**
+     * Drops every cached page, e.g. after the catalog was reloaded.
+     */
+    public void invalidateAll() {
+        synchronized (pages) {
+            generation.incrementAndGet();
+            invalidations.add(pages.size());
+            pages.clear();
+            totalBytes = 0;
+        }
+    }
+
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        synchronized (pages) {
+            stats.put("entries", (long) pages.size());
+            stats.put("bytes", totalBytes);
+        }
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+}
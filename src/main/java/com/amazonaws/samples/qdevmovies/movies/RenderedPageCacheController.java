@@ -0,0 +1,19 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+public class RenderedPageCacheController {
+
+    @Autowired
+    private RenderedPageCache pageCache;
+
+    @GetMapping("/page-cache/stats")
+    public Map<String, Long> getStats() {
+        return pageCache.getStats();
+    }
+}
@@ -0,0 +1,176 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Serves GET /movies, /movies/page, /movies/{id}/details and /movies/{id}/reviews from the {@link RenderedPageCache},
+ * with ETag / If-None-Match support. These pages contain no per-session data;
+ * the stored user name and validation errors are filled in by modal.js. When
+ * user reviews are stored in the session, detail and review pages are not cached.
+ *
+ * <p>Pages are keyed by their path and the parameters that select their content,
+ * normalized and in a fixed order, so that reordered or differently written
+ * parameters share an entry. {@code error} and {@code reviewAdded} are only read
+ * by modal.js and are left out of the key. Requests with any other parameter,
+ * a repeated parameter or a value that does not parse bypass the cache, so
+ * arbitrary URLs cannot fill it and evict the pages that are actually used.
+ */
+@Component
+@ConditionalOnProperty(name = "page-cache.enabled", havingValue = "true", matchIfMissing = true)
+public class RenderedPageCacheFilter extends OncePerRequestFilter {
+    private static final Pattern ALL_CACHED_PATHS = Pattern.compile("/movies(/page|/\\d+/(details|reviews))?");
+    private static final Pattern SHARED_CACHED_PATHS = Pattern.compile("/movies(/page)?");
+    // Parameters in key order
+    private static final List<String> LISTING_PARAMS = Arrays.asList(
+        "genre", "director", "minYear", "maxYear", "minDuration", "maxDuration", "minRating", "sort", "after");
+    private static final List<String> REVIEW_PARAMS = Arrays.asList("sort", "after");
+    private static final Set<String> IGNORED_PARAMS = new HashSet<>(Arrays.asList("error", "reviewAdded"));
+
+    @Autowired
+    private RenderedPageCache pageCache;
+
+    private final Pattern cachedPaths;
+
+    public RenderedPageCacheFilter(@Value("${reviews.store:log}") String reviewStore) {
+        // With session review storage the detail page differs per user, so only the listing is shared
+        this.cachedPaths = "session".equals(reviewStore) ? SHARED_CACHED_PATHS : ALL_CACHED_PATHS;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"GET".equals(request.getMethod()) || !cachedPaths.matcher(pathOf(request)).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = pathOf(request);
+        String key = cacheKey(request, path);
+        if (key == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        RenderedPageCache.Page page = pageCache.get(key);
+        if (page != null) {
+            // Lets request metrics attribute the response to its route although no handler ran
+            request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE,
+                path.endsWith("/details") ? "/movies/{id}/details"
+                    : path.endsWith("/reviews") ? "/movies/{id}/reviews" : path);
+            writePage(request, response, page);
+            return;
+        }
+
+        long renderToken = pageCache.beginRender();
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, wrapper);
+        String contentType = wrapper.getContentType();
+        if (wrapper.getStatus() == HttpServletResponse.SC_OK && contentType != null && contentType.startsWith("text/html")) {
+            byte[] body = wrapper.getContentAsByteArray();
+            String etag = "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+            pageCache.put(key, new RenderedPageCache.Page(path, body, contentType, etag), renderToken);
+            wrapper.setHeader("ETag", etag);
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    private static void writePage(HttpServletRequest request, HttpServletResponse response, RenderedPageCache.Page page)
+            throws IOException {
+        response.setHeader("ETag", page.getEtag());
+        if (page.getEtag().equals(request.getHeader("If-None-Match"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        response.setContentType(page.getContentType());
+        response.setContentLength(page.getBody().length);
+        response.getOutputStream().write(page.getBody());
+    }
+
+    /**
+     * Returns the key for the page, or null if it should not be cached.
+     */
+    static String cacheKey(HttpServletRequest request, String path) {
+        boolean listing = SHARED_CACHED_PATHS.matcher(path).matches();
+        List<String> known = listing ? LISTING_PARAMS : REVIEW_PARAMS;
+        Map<String, String[]> parameters = request.getParameterMap();
+        for (String name : parameters.keySet()) {
+            if (!known.contains(name) && !IGNORED_PARAMS.contains(name)) {
+                return null;
+            }
+        }
+        StringBuilder key = new StringBuilder(path);
+        char separator = '?';
+        for (String name : known) {
+            String[] values = parameters.get(name);
+            if (values == null) {
+                continue;
+            }
+            if (values.length != 1) {
+                return null;
+            }
+            String value = normalize(name, values[0], listing);
+            if (value == null) {
+                return null;
+            }
+            if (!value.isEmpty()) {
+                key.append(separator).append(name).append('=').append(value);
+                separator = '&';
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns the canonical form of a parameter value, empty if it does not
+     * restrict the page, or null if it is not valid.
+     */
+    private static String normalize(String name, String value, boolean listing) {
+        // Numbers are bound ignoring surrounding whitespace, text as it is
+        if (value.trim().isEmpty()) {
+            return "";
+        }
+        try {
+            switch (name) {
+                case "genre":
+                case "director":
+                    return URLEncoder.encode(value, "UTF-8");
+                case "sort":
+                    boolean known = listing ? MovieIndex.SORTS.contains(value) : ReviewIndex.Sort.parse(value, null) != null;
+                    return known ? value : null;
+                case "minRating":
+                    return Double.toString(Double.parseDouble(value.trim()));
+                case "after":
+                    return Long.toString(Long.parseLong(value.trim()));
+                default:
+                    return Integer.toString(Integer.parseInt(value.trim()));
+            }
+        } catch (NumberFormatException | UnsupportedEncodingException e) {
+            return null;
+        }
+    }
+
+    private static String pathOf(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+}
@@ -0,0 +1,64 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Logs one line per sampled request instead of several lines per request.
+ * On average one in {@code request-logging.sample-every} requests is logged;
+ * server errors are always logged. Sampling is random rather than counted so
+ * that request threads share no state.
+ *
+ * <p>Arguments are boxed with {@link Unbox}, so a logged line allocates nothing
+ * when Log4j runs garbage-free.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class RequestLoggingFilter extends OncePerRequestFilter {
+    private static final Logger logger = LogManager.getLogger(RequestLoggingFilter.class);
+
+    private final int sampleEvery;
+
+    public RequestLoggingFilter(@Value("${request-logging.sample-every:100}") int sampleEvery) {
+        this.sampleEvery = sampleEvery;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long startTime = System.nanoTime();
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            // An exception becomes a 500 only after this filter returns
+            int status = failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus();
+            log(request.getMethod(), request.getRequestURI(), status, startTime);
+        }
+    }
+
+    void log(String method, String uri, int status, long startTime) {
+        if (status >= 500 || (sampleEvery > 0 && logger.isInfoEnabled() && sampled())) {
+            logger.info("{} {} {} {} us", method, uri, Unbox.box(status),
+                Unbox.box((System.nanoTime() - startTime) / 1000));
+        }
+    }
+
+    private boolean sampled() {
+        return sampleEvery == 1 || ThreadLocalRandom.current().nextInt(sampleEvery) == 0;
+    }
+}
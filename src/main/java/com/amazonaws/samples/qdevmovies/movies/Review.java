@@ -1,5 +1,7 @@
 package com.amazonaws.samples.qdevmovies.movies;
 
+import com.amazonaws.samples.qdevmovies.utils.RatingFormat;
+
 public class Review {
     private String userName;
     private String avatarEmoji;
@@ -17,4 +19,6 @@ public class Review {
     public String getAvatarEmoji() { return avatarEmoji; }
     public double getRating() { return rating; }
     public String getComment() { return comment; }
+    public String getRatingText() { return RatingFormat.format(rating); }
+    public String getStars() { return RatingFormat.stars(rating); }
 }
@@ -0,0 +1,155 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides whether a review submission may proceed, before any of its work is
+ * done: each client gets a token bucket of {@code burst} reviews refilled at
+ * {@code requests-per-minute}, and at most {@code max-concurrent} submissions
+ * are processed at once.
+ *
+ * <p>A bucket is a single {@link AtomicLong} holding the time at which it will
+ * be full again (the generic cell rate algorithm): taking a token moves that
+ * time forward by one refill interval, and is refused if it would move further
+ * than {@code burst} intervals past now. Buckets are updated with one
+ * compare-and-set, and the map that holds them is striped, so clients never
+ * wait on each other. A bucket that is full again is no different from a new
+ * one, so when more than {@code max-clients} are tracked such buckets are
+ * removed; if every bucket is still in use, new clients are refused until some
+ * refill.
+ */
+@Component
+public class ReviewAdmission {
+
+    public enum Result {
+        ADMITTED, RATE_LIMITED, OVERLOADED
+    }
+
+    // A sweep visits every bucket, so a full table is swept at most this often
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final int maxClients;
+    private final int maxConcurrent;
+    private final LongSupplier clock;
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweep;
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @Autowired
+    public ReviewAdmission(@Value("${reviews.rate-limit.requests-per-minute:10}") int requestsPerMinute,
+                           @Value("${reviews.rate-limit.burst:5}") int burst,
+                           @Value("${reviews.rate-limit.max-clients:100000}") int maxClients,
+                           @Value("${reviews.admission.max-concurrent:64}") int maxConcurrent) {
+        this(requestsPerMinute, burst, maxClients, maxConcurrent, System::nanoTime);
+    }
+
+    /**
+     * @param requestsPerMinute refill rate of each client's bucket, 0 for no rate limit
+     * @param maxConcurrent submissions processed at once, 0 for no limit
+     */
+    ReviewAdmission(int requestsPerMinute, int burst, int maxClients, int maxConcurrent, LongSupplier clock) {
+        this.intervalNanos = requestsPerMinute > 0 ? TimeUnit.MINUTES.toNanos(1) / requestsPerMinute : 0;
+        this.burstNanos = intervalNanos * Math.max(1, burst);
+        this.maxClients = maxClients;
+        this.maxConcurrent = maxConcurrent;
+        this.clock = clock;
+        this.nextSweep = new AtomicLong(clock.getAsLong());
+    }
+
+    /**
+     * Admits a submission from the given client. An admitted submission must be
+     * {@link #release() released} when it completes.
+     */
+    public Result tryAdmit(String client) {
+        if (maxConcurrent > 0 && inFlight.incrementAndGet() > maxConcurrent) {
+            inFlight.decrementAndGet();
+            return Result.OVERLOADED;
+        }
+        if (intervalNanos > 0 && !tryTake(client, clock.getAsLong())) {
+            release();
+            return Result.RATE_LIMITED;
+        }
+        return Result.ADMITTED;
+    }
+
+    public void release() {
+        if (maxConcurrent > 0) {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private boolean tryTake(String client, long now) {
+        AtomicLong bucket = buckets.get(client);
+        if (bucket == null) {
+            if (buckets.size() >= maxClients && !sweep(now)) {
+                return false;
+            }
+            bucket = buckets.computeIfAbsent(client, key -> new AtomicLong(now));
+        }
+        while (true) {
+            long fullAt = bucket.get();
+            long next = Math.max(fullAt, now) + intervalNanos;
+            if (next - now > burstNanos) {
+                return false;
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes full buckets.
+     * @return whether there is room for another client
+     */
+    private boolean sweep(long now) {
+        long due = nextSweep.get();
+        if (now - due >= 0 && nextSweep.compareAndSet(due, now + SWEEP_INTERVAL_NANOS)) {
+            // A bucket taken from between the check and the removal is lost; its client gains at most one token
+            buckets.entrySet().removeIf(entry -> {
+                boolean full = entry.getValue().get() - now <= 0;
+                if (full) {
+                    evictions.incrementAndGet();
+                }
+                return full;
+            });
+        }
+        return buckets.size() < maxClients;
+    }
+
+    /**
+     * Returns how long the client must wait for its next token, zero if it has one.
+     */
+    public long getRetryAfterNanos(String client) {
+        AtomicLong bucket = buckets.get(client);
+        if (bucket == null) {
+            return 0;
+        }
+        long now = clock.getAsLong();
+        return Math.max(0, bucket.get() + intervalNanos - now - burstNanos);
+    }
+
+    public int getTrackedClients() {
+        return buckets.size();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,67 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Applies {@link ReviewAdmission} to review submissions. Refused submissions
+ * are answered with 429 Too Many Requests before the form is even read, so
+ * they cost no validation, session or storage work. Clients are told by their
+ * address; behind a proxy, set {@code server.forward-headers-strategy} so that
+ * it is the original client's.
+ */
+@Component
+public class ReviewAdmissionFilter extends OncePerRequestFilter {
+    private static final Pattern REVIEW_PATHS = Pattern.compile("/movies/\\d+/details");
+
+    @Autowired
+    private ReviewAdmission admission;
+
+    @Autowired
+    private MoviesMetrics metrics;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+            || !REVIEW_PATHS.matcher(request.getRequestURI().substring(request.getContextPath().length())).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String client = request.getRemoteAddr();
+        ReviewAdmission.Result result = admission.tryAdmit(client);
+        if (result == ReviewAdmission.Result.ADMITTED) {
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                admission.release();
+            }
+            return;
+        }
+        long retryAfterNanos;
+        String message;
+        if (result == ReviewAdmission.Result.RATE_LIMITED) {
+            metrics.reviewRejected("rate_limited");
+            retryAfterNanos = admission.getRetryAfterNanos(client);
+            message = "You are submitting reviews too quickly, please wait a moment and try again.";
+        } else {
+            metrics.reviewRejected("overloaded");
+            retryAfterNanos = TimeUnit.SECONDS.toNanos(1);
+            message = "Too many reviews are being submitted right now, please try again in a moment.";
+        }
+        response.setStatus(429);
+        response.setHeader("Retry-After", Long.toString(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryAfterNanos + 999_999_999))));
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write(message);
+    }
+}
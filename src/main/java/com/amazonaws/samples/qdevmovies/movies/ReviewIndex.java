@@ -0,0 +1,332 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.servlet.http.HttpSession;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Each movie's mock and shared user reviews, kept in every order the detail
+ * page and the API offer, so that a page of reviews costs the page size
+ * whatever the number of reviews.
+ *
+ * <p>A review's sequence number is its position in arrival order, mock reviews
+ * first. Newest and oldest first are that order read backwards or forwards;
+ * the other orders are arrays of sequence numbers sorted when a review is
+ * inserted, ties going to the newest review. A movie's arrays are copied with
+ * the new review on insert and replaced as a whole, so pages are read without
+ * locking. Pages continue after the sequence number of the last review shown.
+ *
+ * <p>Reviews kept in a session are few and private to it. They follow the
+ * movie's reviews in arrival order, are ordered per request, and are merged
+ * into the page as it is read, so the movie's arrays are never copied for them.
+ */
+@Service
+public class ReviewIndex {
+    private static final Logger logger = LogManager.getLogger(ReviewIndex.class);
+
+    public enum Sort {
+        newest("Newest"), oldest("Oldest"), highest("Highest rated"), helpful("Most helpful");
+
+        private final String label;
+
+        Sort(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * @return the sort with the given name, the default for none, or null if it is unknown
+         */
+        static Sort parse(String name, Sort defaultSort) {
+            if (name == null || name.isEmpty()) {
+                return defaultSort;
+            }
+            try {
+                return valueOf(name);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * One page of reviews and the cursor of the next page, null on the last page.
+     */
+    public static final class Page {
+        private final List<Review> reviews;
+        private final Integer nextCursor;
+        private final int total;
+
+        Page(List<Review> reviews, Integer nextCursor, int total) {
+            this.reviews = reviews;
+            this.nextCursor = nextCursor;
+            this.total = total;
+        }
+
+        public List<Review> getReviews() {
+            return reviews;
+        }
+
+        public Integer getNextCursor() {
+            return nextCursor;
+        }
+
+        /**
+         * Returns the number of reviews in all pages.
+         */
+        public int getTotal() {
+            return total;
+        }
+    }
+
+    /**
+     * A movie's reviews in arrival order and sorted by rating and helpfulness.
+     */
+    private static final class MovieReviews {
+        static final MovieReviews EMPTY = new MovieReviews(new Review[0], new int[0], new int[0]);
+
+        final Review[] reviews;
+        // Sequence numbers, highest rated first
+        final int[] byRating;
+        // Sequence numbers, most helpful first
+        final int[] byHelpfulness;
+
+        MovieReviews(Review[] reviews, int[] byRating, int[] byHelpfulness) {
+            this.reviews = reviews;
+            this.byRating = byRating;
+            this.byHelpfulness = byHelpfulness;
+        }
+
+        static MovieReviews of(List<Review> list) {
+            Review[] reviews = list.toArray(new Review[0]);
+            return new MovieReviews(reviews, sorted(reviews, Sort.highest), sorted(reviews, Sort.helpful));
+        }
+
+        private static int[] sorted(Review[] reviews, Sort sort) {
+            Integer[] order = new Integer[reviews.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> {
+                int byKey = Double.compare(key(reviews[b], sort), key(reviews[a], sort));
+                return byKey != 0 ? byKey : Integer.compare(b, a);
+            });
+            int[] sequences = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                sequences[i] = order[i];
+            }
+            return sequences;
+        }
+
+        MovieReviews with(Review review) {
+            Review[] grown = Arrays.copyOf(reviews, reviews.length + 1);
+            grown[reviews.length] = review;
+            return new MovieReviews(grown,
+                insert(byRating, grown, Sort.highest, reviews.length),
+                insert(byHelpfulness, grown, Sort.helpful, reviews.length));
+        }
+
+        /**
+         * Inserts the newest review before every review that does not rank above it.
+         */
+        private static int[] insert(int[] order, Review[] reviews, Sort sort, int sequence) {
+            double key = key(reviews[sequence], sort);
+            int low = 0;
+            int high = order.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (key(reviews[order[middle]], sort) > key) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            int[] inserted = new int[order.length + 1];
+            System.arraycopy(order, 0, inserted, 0, low);
+            inserted[low] = sequence;
+            System.arraycopy(order, low, inserted, low + 1, order.length - low);
+            return inserted;
+        }
+
+        int size() {
+            return reviews.length;
+        }
+
+        /**
+         * Returns the sequence number at a position of the given order.
+         */
+        int at(Sort sort, int position) {
+            switch (sort) {
+                case newest: return reviews.length - 1 - position;
+                case oldest: return position;
+                case highest: return byRating[position];
+                default: return byHelpfulness[position];
+            }
+        }
+
+        /**
+         * Returns the first position of the given order whose review comes after
+         * the one with the given key and sequence number, which need not be in
+         * this movie's arrays.
+         */
+        int firstAfter(Sort sort, double key, int sequence) {
+            int size = reviews.length;
+            switch (sort) {
+                case newest: return Math.max(0, Math.min(size, size - sequence));
+                case oldest: return Math.max(0, Math.min(size, sequence + 1));
+                default: break;
+            }
+            int[] order = sort == Sort.highest ? byRating : byHelpfulness;
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (precedes(sort, key, sequence, key(reviews[order[middle]], sort), order[middle])) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            return low;
+        }
+    }
+
+    private final UserReviewStore userReviewStore;
+    private final Map<Long, MovieReviews> reviewsByMovie = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ReviewIndex(ReviewService reviewService, UserReviewStore userReviewStore) {
+        this.userReviewStore = userReviewStore;
+        Map<Long, List<Review>> all = new HashMap<>();
+        collect(all, reviewService.getAllReviews());
+        if (userReviewStore.isShared()) {
+            collect(all, userReviewStore.getAllSharedReviews());
+        }
+        int count = 0;
+        for (Map.Entry<Long, List<Review>> entry : all.entrySet()) {
+            reviewsByMovie.put(entry.getKey(), MovieReviews.of(entry.getValue()));
+            count += entry.getValue().size();
+        }
+        logger.info("Sorted {} reviews of {} movies", count, reviewsByMovie.size());
+    }
+
+    private static void collect(Map<Long, List<Review>> target, Map<Long, List<Review>> reviews) {
+        for (Map.Entry<Long, List<Review>> entry : reviews.entrySet()) {
+            target.computeIfAbsent(entry.getKey(), key -> new ArrayList<>()).addAll(entry.getValue());
+        }
+    }
+
+    /**
+     * Ranks a review in an order: higher first.
+     */
+    static double key(Review review, Sort sort) {
+        if (sort == Sort.highest) {
+            return review.getRating();
+        }
+        // Without helpfulness votes, the most detailed reviews count as the most helpful
+        return review.getComment() == null ? 0 : review.getComment().length();
+    }
+
+    /**
+     * Returns whether review A comes before review B in an order, given their
+     * keys and sequence numbers.
+     */
+    static boolean precedes(Sort sort, double keyA, int sequenceA, double keyB, int sequenceB) {
+        switch (sort) {
+            case newest: return sequenceA > sequenceB;
+            case oldest: return sequenceA < sequenceB;
+            default: return keyA != keyB ? keyA > keyB : sequenceA > sequenceB;
+        }
+    }
+
+    /**
+     * Adds a newly accepted shared review.
+     */
+    public void addReview(long movieId, Review review) {
+        reviewsByMovie.compute(movieId, (id, reviews) -> (reviews != null ? reviews : MovieReviews.EMPTY).with(review));
+    }
+
+    /**
+     * Returns up to {@code limit} reviews of a movie in the given order, following
+     * the review with sequence number {@code after}, or from the start if it is
+     * null. Returns an empty page if {@code after} is not a review of the movie.
+     * @param sessionReviews reviews kept in the user's session, added after the others
+     */
+    public Page getPage(long movieId, Sort sort, Integer after, int limit, List<Review> sessionReviews) {
+        MovieReviews reviews = reviewsByMovie.getOrDefault(movieId, MovieReviews.EMPTY);
+        int shared = reviews.size();
+        int total = shared + sessionReviews.size();
+        // Sequence numbers of the session reviews in the requested order
+        int[] sessionOrder = new int[sessionReviews.size()];
+        for (int i = 0; i < sessionOrder.length; i++) {
+            int position = i;
+            double key = key(sessionReviews.get(i), sort);
+            while (position > 0 && precedes(sort, key, shared + i,
+                    key(sessionReviews.get(sessionOrder[position - 1] - shared), sort), sessionOrder[position - 1])) {
+                sessionOrder[position] = sessionOrder[position - 1];
+                position--;
+            }
+            sessionOrder[position] = shared + i;
+        }
+
+        int from = 0;
+        int sessionFrom = 0;
+        if (after != null) {
+            if (after < 0 || after >= total) {
+                return new Page(Collections.<Review>emptyList(), null, total);
+            }
+            double key = key(after < shared ? reviews.reviews[after] : sessionReviews.get(after - shared), sort);
+            from = reviews.firstAfter(sort, key, after);
+            while (sessionFrom < sessionOrder.length && !precedes(sort, key, after,
+                    key(sessionReviews.get(sessionOrder[sessionFrom] - shared), sort), sessionOrder[sessionFrom])) {
+                sessionFrom++;
+            }
+        }
+
+        List<Review> page = new ArrayList<>(Math.max(0, Math.min(limit, total)));
+        int last = -1;
+        while (page.size() < limit && (from < shared || sessionFrom < sessionOrder.length)) {
+            int sequence = from < shared ? reviews.at(sort, from) : -1;
+            Review review = sequence >= 0 ? reviews.reviews[sequence] : null;
+            if (sessionFrom < sessionOrder.length) {
+                Review sessionReview = sessionReviews.get(sessionOrder[sessionFrom] - shared);
+                if (review == null || precedes(sort, key(sessionReview, sort), sessionOrder[sessionFrom],
+                        key(review, sort), sequence)) {
+                    sequence = sessionOrder[sessionFrom++];
+                    review = sessionReview;
+                } else {
+                    from++;
+                }
+            } else {
+                from++;
+            }
+            page.add(review);
+            last = sequence;
+        }
+        boolean more = from < shared || sessionFrom < sessionOrder.length;
+        return new Page(page, more && last >= 0 ? last : null, total);
+    }
+
+    /**
+     * Returns a page of the reviews the given session sees: with a shared store
+     * everyone's, otherwise the mock reviews and the session's own.
+     */
+    public Page getPage(long movieId, Sort sort, Integer after, int limit, HttpSession session) {
+        List<Review> sessionReviews = userReviewStore.isShared()
+            ? Collections.<Review>emptyList() : userReviewStore.getReviews(movieId, session);
+        return getPage(movieId, sort, after, limit, sessionReviews);
+    }
+}
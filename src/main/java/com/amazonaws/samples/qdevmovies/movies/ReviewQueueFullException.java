@@ -0,0 +1,13 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+/**
+ * Thrown when a review cannot be accepted because too many reviews are
+ * already waiting to be written. The review was not stored; the user can
+ * submit it again shortly.
+ */
+public class ReviewQueueFullException extends RuntimeException {
+
+    public ReviewQueueFullException(int queued) {
+        super(queued + " reviews are waiting to be written");
+    }
+}
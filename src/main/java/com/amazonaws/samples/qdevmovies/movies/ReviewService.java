@@ -2,46 +2,141 @@ package com.amazonaws.samples.qdevmovies.movies;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.List;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 @Service
 public class ReviewService {
     private static final Logger logger = LogManager.getLogger(ReviewService.class);
 
-    public List<Review> getReviewsForMovie(long movieId) {
-        List<Review> reviews = new ArrayList<>();
-        try {
-            InputStream inputStream = getClass().getClassLoader().getResourceAsStream("mock-reviews.json");
+    // Mock reviews are parsed once at startup into a sorted primitive key
+    // column with a parallel column of unmodifiable per-movie lists.
+    private final long[] movieIds;
+    private final List<Review>[] reviewsByMovie;
+
+    public ReviewService() {
+        this(readMockReviews(""));
+    }
+
+    @Autowired
+    public ReviewService(CatalogSnapshotManager snapshots, @Value("${reviews.mock-path:}") String mockReviewsPath) {
+        this(snapshots != null && snapshots.getSnapshot() != null
+            ? snapshots.getSnapshot().readReviews() : readMockReviews(mockReviewsPath));
+    }
+
+    /**
+     * Serves a fixed set of reviews keyed by movie ID.
+     */
+    ReviewService(Map<Long, List<Review>> reviews) {
+        long[] ids = new long[reviews.size()];
+        int count = 0;
+        for (Long movieId : reviews.keySet()) {
+            ids[count++] = movieId;
+        }
+        Arrays.sort(ids);
+
+        @SuppressWarnings("unchecked")
+        List<Review>[] lists = new List[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            lists[i] = Collections.unmodifiableList(new ArrayList<>(reviews.get(ids[i])));
+        }
+        this.movieIds = ids;
+        this.reviewsByMovie = lists;
+    }
+
+    /**
+     * Parses the mock reviews, skipping invalid entries.
+     * @param path an external file in the format of mock-reviews.json, or empty for the bundled one
+     */
+    static Map<Long, List<Review>> readMockReviews(String path) {
+        Map<Long, List<Review>> reviews = new LinkedHashMap<>();
+        JSONObject reviewsData = loadReviewsFromJson(path);
+        for (String key : reviewsData.keySet()) {
+            long movieId;
+            try {
+                movieId = Long.parseLong(key);
+            } catch (NumberFormatException e) {
+                logger.warn("Skipping reviews with non-numeric movie ID: {}", key);
+                continue;
+            }
+            reviews.put(movieId, toReviewList(movieId, reviewsData.getJSONArray(key)));
+        }
+        return reviews;
+    }
+
+    private static InputStream openMockReviews(String path) throws IOException {
+        return path != null && !path.isEmpty() ? Files.newInputStream(Paths.get(path))
+            : ReviewService.class.getClassLoader().getResourceAsStream("mock-reviews.json");
+    }
+
+    private static JSONObject loadReviewsFromJson(String path) {
+        try (InputStream inputStream = openMockReviews(path)) {
             if (inputStream != null) {
-                Scanner scanner = new Scanner(inputStream, StandardCharsets.UTF_8.name());
-                String jsonContent = scanner.useDelimiter("\\A").next();
-                scanner.close();
-                
-                JSONObject reviewsData = new JSONObject(jsonContent);
-                if (reviewsData.has(String.valueOf(movieId))) {
-                    JSONArray movieReviews = reviewsData.getJSONArray(String.valueOf(movieId));
-                    for (int i = 0; i < movieReviews.length(); i++) {
-                        JSONObject reviewObj = movieReviews.getJSONObject(i);
-                        reviews.add(new Review(
-                            reviewObj.getString("userName"),
-                            reviewObj.getString("avatarEmoji"),
-                            reviewObj.getDouble("rating"),
-                            reviewObj.getString("comment")
-                        ));
+                try (Scanner scanner = new Scanner(inputStream, StandardCharsets.UTF_8.name())) {
+                    scanner.useDelimiter("\\A");
+                    if (scanner.hasNext()) {
+                        return new JSONObject(scanner.next());
                     }
+                    logger.warn("Mock reviews file is empty");
                 }
             }
         } catch (Exception e) {
-            logger.error("Failed to load reviews for movie {}: {}", movieId, e.getMessage());
+            logger.error("Failed to load reviews from JSON: {}", e.getMessage());
+        }
+        return new JSONObject();
+    }
+
+    private static List<Review> toReviewList(long movieId, JSONArray movieReviews) {
+        List<Review> reviews = new ArrayList<>(movieReviews.length());
+        for (int i = 0; i < movieReviews.length(); i++) {
+            try {
+                JSONObject reviewObj = movieReviews.getJSONObject(i);
+                reviews.add(new Review(
+                    reviewObj.getString("userName"),
+                    reviewObj.getString("avatarEmoji"),
+                    reviewObj.getDouble("rating"),
+                    reviewObj.getString("comment")
+                ));
+            } catch (Exception e) {
+                logger.error("Failed to load review {} for movie {}: {}", i, movieId, e.getMessage());
+            }
         }
         return reviews;
     }
+
+    /**
+     * Returns the mock reviews for a movie as an unmodifiable list. The list is
+     * shared between callers, so no allocation happens per request.
+     */
+    public List<Review> getReviewsForMovie(long movieId) {
+        int index = Arrays.binarySearch(movieIds, movieId);
+        return index >= 0 ? reviewsByMovie[index] : Collections.<Review>emptyList();
+    }
+
+    /**
+     * Returns all mock reviews keyed by movie ID, in ascending ID order.
+     */
+    public Map<Long, List<Review>> getAllReviews() {
+        Map<Long, List<Review>> allReviews = new LinkedHashMap<>();
+        for (int i = 0; i < movieIds.length; i++) {
+            allReviews.put(movieIds[i], reviewsByMovie[i]);
+        }
+        return allReviews;
+    }
 }
@@ -1,67 +1,351 @@
 package com.amazonaws.samples.qdevmovies.movies;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Validates submitted reviews. The comment is scanned once, char by char:
+ * words are counted as whitespace-separated runs, runs of the same word are
+ * checked against {@code reviews.validation.max-repeated-words}, and blocked
+ * terms are matched with a precomputed Aho-Corasick automaton. Without blocked
+ * terms or a repetition limit the scan stops at the fifth word. Validation
+ * allocates nothing; errors are constant strings.
+ *
+ * <p>Blocked terms match whole words or phrases, ignoring case, punctuation
+ * and extra whitespace, so a blocked "spam" matches "SPAM!" but not "spammer".
+ */
+@Component
 public class ReviewValidator {
-    
-    // INTENTIONAL ISSUE #1: Security vulnerability - hardcoded credentials
-    // Use environment variables or secure configuration for credentials
-    // private static final String DB_PASSWORD = System.getenv("DB_PASSWORD");
-    // private static final String API_KEY = System.getenv("API_KEY");
-    
+
+    static final String USER_NAME_REQUIRED = "User name is required";
+    static final String RATING_OUT_OF_RANGE = "Rating must be between 1 and 5 stars";
+    static final String COMMENT_REQUIRED = "Review comment is required";
+    static final String TOO_FEW_WORDS = "Review must be at least 5 words";
+    static final String TOO_LONG_PREFIX = "Review must be at most ";
+    static final String REPEATED_WORDS = "Review repeats the same word too many times";
+    static final String BLOCKED_TERM = "Review contains words that are not allowed";
+
+    private static final int MIN_WORDS = 5;
+
+    // Only the word count, as the rules were before they became configurable
+    private static final ReviewValidator WORD_COUNT_ONLY = new ReviewValidator(0, 0, Collections.<String>emptyList());
+
+    private final int maxCommentLength;
+    private final String tooLong;
+    private final int maxRepeatedWords;
+    private final BlockedTerms blockedTerms;
+
+    @Autowired
+    public ReviewValidator(@Value("${reviews.validation.max-comment-length:2000}") int maxCommentLength,
+                           @Value("${reviews.validation.max-repeated-words:3}") int maxRepeatedWords,
+                           @Value("${reviews.validation.blocklist:classpath:review-blocklist.txt}") Resource blocklist) throws IOException {
+        this(maxCommentLength, maxRepeatedWords, readTerms(blocklist));
+    }
+
+    /**
+     * @param maxCommentLength longest allowed comment in chars, 0 for no limit
+     * @param maxRepeatedWords most times a word may appear in a row, 0 for no limit
+     * @param blockedTerms words or phrases that may not appear in a comment
+     */
+    ReviewValidator(int maxCommentLength, int maxRepeatedWords, Collection<String> blockedTerms) {
+        this.maxCommentLength = maxCommentLength;
+        this.tooLong = TOO_LONG_PREFIX + maxCommentLength + " characters";
+        this.maxRepeatedWords = maxRepeatedWords;
+        this.blockedTerms = BlockedTerms.build(blockedTerms);
+    }
+
+    /**
+     * Checks the word count only.
+     * @return an error message, or null if the review is valid
+     */
     public static String validateReview(ReviewRequest request) {
-        // Validate username
-        if (request.getUserName() == null || request.getUserName().trim().isEmpty()) {
-            return "User name is required";
+        return WORD_COUNT_ONLY.validate(request);
+    }
+
+    /**
+     * @return an error message, or null if the review is valid
+     */
+    public String validate(ReviewRequest request) {
+        if (isBlank(request.getUserName())) {
+            return USER_NAME_REQUIRED;
         }
-        
-        // Validate rating
         if (request.getRating() < 1 || request.getRating() > 5) {
-            return "Rating must be between 1 and 5 stars";
-        }
-        
-        // Validate comment
-        if (request.getComment() == null || request.getComment().trim().isEmpty()) {
-            return "Review comment is required";
-        }
-        
-        // Check word count
-        String comment = request.getComment().trim();
-        String[] words = comment.split("\\s+");
-        int wordCount = comment.isEmpty() ? 0 : words.length;
-        
-        if (wordCount < 5) {
-            return "Review must be at least 5 words";
-        }
-        
-        return null; // No errors
+            return RATING_OUT_OF_RANGE;
+        }
+        String comment = request.getComment();
+        if (comment == null) {
+            return COMMENT_REQUIRED;
+        }
+        if (maxCommentLength > 0 && comment.length() > maxCommentLength) {
+            return tooLong;
+        }
+        return checkComment(comment);
+    }
+
+    /**
+     * Returns a short, stable code for an error returned by {@link #validate},
+     * suitable as a metric tag.
+     */
+    public static String reasonOf(String error) {
+        switch (error) {
+            case USER_NAME_REQUIRED: return "user_name";
+            case RATING_OUT_OF_RANGE: return "rating";
+            case COMMENT_REQUIRED: return "comment";
+            case TOO_FEW_WORDS: return "word_count";
+            case REPEATED_WORDS: return "repetition";
+            case BLOCKED_TERM: return "blocked_term";
+            default: return error.startsWith(TOO_LONG_PREFIX) ? "length" : "other";
+        }
+    }
+
+    private String checkComment(String comment) {
+        boolean scanAll = blockedTerms != null || maxRepeatedWords > 0;
+        // Locals rather than fields, so the loop does not reload them after each call
+        int maxRepeats = maxRepeatedWords;
+        BlockedTerms terms = blockedTerms;
+        int[] transitions = terms != null ? terms.transitions : null;
+        boolean[] accepting = terms != null ? terms.accepting : null;
+        int width = terms != null ? terms.width : 0;
+        int spaceColumn = terms != null ? terms.spaceColumn : 0;
+        int state = terms != null ? terms.initialState : 0;
+        boolean afterSeparator = true;
+
+        int length = comment.length();
+        int words = 0;
+        int wordStart = -1;
+        int previousStart = 0;
+        int previousLength = -1;
+        int repeats = 0;
+        // One position past the end closes the last word and blocked phrase
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? comment.charAt(i) : ' ';
+            if (!isWhitespace(c)) {
+                if (wordStart < 0) {
+                    wordStart = i;
+                    words++;
+                    if (words >= MIN_WORDS && !scanAll) {
+                        return null;
+                    }
+                }
+            } else if (wordStart >= 0) {
+                if (maxRepeats > 0) {
+                    int wordLength = i - wordStart;
+                    if (wordLength == previousLength
+                            && comment.regionMatches(true, previousStart, comment, wordStart, wordLength)) {
+                        if (++repeats >= maxRepeats) {
+                            return REPEATED_WORDS;
+                        }
+                    } else {
+                        repeats = 0;
+                    }
+                    previousStart = wordStart;
+                    previousLength = wordLength;
+                }
+                wordStart = -1;
+            }
+            if (terms != null) {
+                int column = terms.column(c);
+                // Runs of separators count as one space
+                boolean separator = column == spaceColumn;
+                if (!separator || !afterSeparator) {
+                    state = transitions[state * width + column];
+                    if (accepting[state]) {
+                        return BLOCKED_TERM;
+                    }
+                }
+                afterSeparator = separator;
+            }
+        }
+        if (words == 0) {
+            return COMMENT_REQUIRED;
+        }
+        return words < MIN_WORDS ? TOO_FEW_WORDS : null;
     }
-    
-    private static String checkComment(ReviewRequest request) {
-        if (request.getComment() == null || request.getComment().trim().isEmpty()) {
-            return "Review comment is required";
-        }
-        
-        // INTENTIONAL ISSUE #2: Inefficient nested loops for word counting
-        // Efficient word counting using split
-        String comment = request.getComment().trim();
-        String[] words = comment.split("\\s+");
-        int wordCount = words.length;
-        
-        // Handle empty string case
-        if (comment.isEmpty()) {
-            wordCount = 0;
-        }
-        
-        if (wordCount < 5) {
-            return "Review must be at least 5 words";
-        }
-        
-        return null; // No errors
+
+    private static boolean isWhitespace(char c) {
+        // Spaces and ASCII control chars are decided without a Character lookup
+        return c <= ' ' ? Character.isWhitespace(c) : c >= 0x80 && Character.isWhitespace(c);
     }
-    
-    // Unused method that references the hardcoded credentials
-    private static boolean authenticateUser(String username) {
-        // This simulates a database connection with hardcoded password
-        String connectionString = "jdbc:mysql://localhost:3306/reviews?user=admin&password=" + DB_PASSWORD;
+
+    private static boolean isBlank(String value) {
+        if (value == null) {
+            return true;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isWhitespace(value.charAt(i))) {
+                return false;
+            }
+        }
         return true;
     }
+
+    /**
+     * Reads one term per line, skipping blank lines and lines starting with '#'.
+     */
+    private static List<String> readTerms(Resource resource) throws IOException {
+        List<String> terms = new ArrayList<>();
+        if (resource == null || !resource.exists()) {
+            return terms;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    terms.add(line);
+                }
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Aho-Corasick automaton over normalized text, compiled to a full
+     * transition table so that each char costs one lookup. Text is normalized
+     * on the fly: letters and digits are lower-cased, every other char becomes
+     * a single space, and the text is treated as if surrounded by spaces. Terms
+     * are stored as " term ", so they only match whole words.
+     */
+    private static final class BlockedTerms {
+        private final char[] alphabet;
+        // Column 0 is every char outside the alphabet
+        final int[] transitions;
+        final int width;
+        // Columns of ASCII chars after normalization, so that most text skips the binary search
+        private final int[] asciiColumns = new int[128];
+        final int spaceColumn;
+        final boolean[] accepting;
+        final int initialState;
+
+        private BlockedTerms(char[] alphabet, int[] transitions, boolean[] accepting) {
+            this.alphabet = alphabet;
+            this.transitions = transitions;
+            this.width = alphabet.length + 1;
+            this.accepting = accepting;
+            this.spaceColumn = alphabetColumn(' ');
+            for (char c = 0; c < asciiColumns.length; c++) {
+                asciiColumns[c] = normalizedColumn(c);
+            }
+            // The text starts after a virtual space
+            this.initialState = transitions[spaceColumn];
+        }
+
+        static BlockedTerms build(Collection<String> terms) {
+            List<String> patterns = new ArrayList<>();
+            TreeSet<Character> chars = new TreeSet<>();
+            for (String term : terms) {
+                String pattern = normalize(term);
+                if (pattern.length() > 2) {
+                    patterns.add(pattern);
+                    for (char c : pattern.toCharArray()) {
+                        chars.add(c);
+                    }
+                }
+            }
+            if (patterns.isEmpty()) {
+                return null;
+            }
+            char[] alphabet = new char[chars.size()];
+            int a = 0;
+            for (char c : chars) {
+                alphabet[a++] = c;
+            }
+
+            // Trie, one child map per state
+            List<Map<Character, Integer>> children = new ArrayList<>();
+            List<Boolean> terminal = new ArrayList<>();
+            children.add(new HashMap<>());
+            terminal.add(false);
+            for (String pattern : patterns) {
+                int state = 0;
+                for (char c : pattern.toCharArray()) {
+                    Integer next = children.get(state).get(c);
+                    if (next == null) {
+                        next = children.size();
+                        children.add(new HashMap<>());
+                        terminal.add(false);
+                        children.get(state).put(c, next);
+                    }
+                    state = next;
+                }
+                terminal.set(state, true);
+            }
+
+            // Breadth-first, each state's missing transitions are its failure state's
+            int width = alphabet.length + 1;
+            int[] transitions = new int[children.size() * width];
+            boolean[] accepting = new boolean[children.size()];
+            int[] failure = new int[children.size()];
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            for (int column = 1; column < width; column++) {
+                Integer child = children.get(0).get(alphabet[column - 1]);
+                if (child != null) {
+                    transitions[column] = child;
+                    queue.add(child);
+                }
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                accepting[state] = terminal.get(state) || accepting[failure[state]];
+                for (int column = 0; column < width; column++) {
+                    Integer child = column == 0 ? null : children.get(state).get(alphabet[column - 1]);
+                    int fallback = transitions[failure[state] * width + column];
+                    if (child != null) {
+                        failure[child] = fallback;
+                        transitions[state * width + column] = child;
+                        queue.add(child);
+                    } else {
+                        transitions[state * width + column] = fallback;
+                    }
+                }
+            }
+            return new BlockedTerms(alphabet, transitions, accepting);
+        }
+
+        /**
+         * Returns the column of a text char after normalization.
+         */
+        int column(char c) {
+            return c < asciiColumns.length ? asciiColumns[c] : normalizedColumn(c);
+        }
+
+        private int normalizedColumn(char c) {
+            return alphabetColumn(Character.isLetterOrDigit(c) ? Character.toLowerCase(c) : ' ');
+        }
+
+        private int alphabetColumn(char c) {
+            int index = Arrays.binarySearch(alphabet, c);
+            return index < 0 ? 0 : index + 1;
+        }
+
+        private static String normalize(String term) {
+            StringBuilder pattern = new StringBuilder(" ");
+            for (char c : term.toCharArray()) {
+                char normalized = Character.isLetterOrDigit(c) ? Character.toLowerCase(c) : ' ';
+                if (normalized != ' ' || pattern.charAt(pattern.length() - 1) != ' ') {
+                    pattern.append(normalized);
+                }
+            }
+            if (pattern.charAt(pattern.length() - 1) != ' ') {
+                pattern.append(' ');
+            }
+            return pattern.toString();
+        }
+    }
 }
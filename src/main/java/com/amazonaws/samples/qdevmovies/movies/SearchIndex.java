@@ -0,0 +1,550 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process full-text index over movie names, descriptions and review comments,
+ * ranked with BM25.
+ *
+ * <p>Every indexed text (a name, a description or one review) is a unit with its
+ * own ID. Units are only ever appended, so each term's postings list is a byte
+ * array of variable-length integers that only grows at the end: per unit the
+ * delta to the previous unit ID, the term frequency and the delta-encoded
+ * token positions. A movie's score is the weighted sum of the scores of its
+ * units, names weighing most and reviews least.
+ *
+ * <p>Queries match any of their terms; a quoted phrase only matches units in
+ * which its terms appear consecutively.
+ */
+@Service
+public class SearchIndex {
+    private static final Logger logger = LogManager.getLogger(SearchIndex.class);
+
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+    private static final float REVIEW_WEIGHT = 0.5f;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    public static final int MAX_RESULTS = 20;
+
+    private static final class Postings {
+        private byte[] data = new byte[16];
+        private int size;
+        private int unitCount;
+        private int lastUnit = -1;
+
+        void add(int unit, int[] positions, int count) {
+            writeVarInt(lastUnit < 0 ? unit : unit - lastUnit);
+            writeVarInt(count);
+            int previous = 0;
+            for (int i = 0; i < count; i++) {
+                writeVarInt(positions[i] - previous);
+                previous = positions[i];
+            }
+            lastUnit = unit;
+            unitCount++;
+        }
+
+        private void writeVarInt(int value) {
+            if (size + 5 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            while ((value & ~0x7F) != 0) {
+                data[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[size++] = (byte) value;
+        }
+    }
+
+    /**
+     * Sequential reader over one postings list.
+     */
+    private static final class PostingsCursor {
+        private final Postings postings;
+        private int offset;
+        int unit = -1;
+        int frequency;
+        int[] positions = new int[8];
+
+        PostingsCursor(Postings postings) {
+            this.postings = postings;
+        }
+
+        boolean next() {
+            if (offset >= postings.size) {
+                return false;
+            }
+            int delta = readVarInt();
+            unit = unit < 0 ? delta : unit + delta;
+            frequency = readVarInt();
+            if (positions.length < frequency) {
+                positions = new int[frequency];
+            }
+            int position = 0;
+            for (int i = 0; i < frequency; i++) {
+                position += readVarInt();
+                positions[i] = position;
+            }
+            return true;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = postings.data[offset++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+    }
+
+    /**
+     * Scores per movie ID in an open-addressing table of primitives, so a
+     * search boxes nothing however many movies match.
+     */
+    private static final class Scores {
+        private static final long EMPTY = Long.MIN_VALUE;
+
+        private long[] movieIds;
+        private double[] scores;
+        private int size;
+
+        /**
+         * @param expected the most movies expected to match, so that the table rarely grows
+         */
+        Scores(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, Math.min(expected, 1 << 24)) * 2 - 1) * 2;
+            movieIds = new long[capacity];
+            scores = new double[capacity];
+            Arrays.fill(movieIds, EMPTY);
+        }
+
+        void add(long movieId, double score) {
+            int mask = movieIds.length - 1;
+            // Catalog IDs are mostly dense and postings are in catalog order, so keeping
+            // the low bits puts consecutive movies in consecutive slots
+            int slot = Long.hashCode(movieId) & mask;
+            while (movieIds[slot] != EMPTY && movieIds[slot] != movieId) {
+                slot = (slot + 1) & mask;
+            }
+            if (movieIds[slot] == EMPTY) {
+                movieIds[slot] = movieId;
+                if (++size * 2 > movieIds.length) {
+                    scores[slot] = score;
+                    grow();
+                    return;
+                }
+            }
+            scores[slot] += score;
+        }
+
+        private void grow() {
+            long[] oldIds = movieIds;
+            double[] oldScores = scores;
+            movieIds = new long[oldIds.length * 2];
+            scores = new double[oldIds.length * 2];
+            Arrays.fill(movieIds, EMPTY);
+            size = 0;
+            for (int i = 0; i < oldIds.length; i++) {
+                if (oldIds[i] != EMPTY) {
+                    add(oldIds[i], oldScores[i]);
+                }
+            }
+        }
+
+        /**
+         * Returns the movie IDs with the highest scores, best first and ties by
+         * ascending ID, selected with a bounded heap rather than a full sort.
+         */
+        List<Long> top(int limit) {
+            // Min-heap of slots with the worst of the best at the root
+            int[] heap = new int[Math.min(limit, size)];
+            int heapSize = 0;
+            for (int slot = 0; slot < movieIds.length && heap.length > 0; slot++) {
+                if (movieIds[slot] == EMPTY) {
+                    continue;
+                }
+                if (heapSize < heap.length) {
+                    heap[heapSize] = slot;
+                    siftUp(heap, heapSize++);
+                } else if (better(slot, heap[0])) {
+                    heap[0] = slot;
+                    siftDown(heap, heapSize);
+                }
+            }
+            Long[] ranked = new Long[heapSize];
+            while (heapSize > 0) {
+                ranked[--heapSize] = movieIds[heap[0]];
+                heap[0] = heap[heapSize];
+                siftDown(heap, heapSize);
+            }
+            return Arrays.asList(ranked);
+        }
+
+        private boolean better(int a, int b) {
+            return scores[a] != scores[b] ? scores[a] > scores[b] : movieIds[a] < movieIds[b];
+        }
+
+        private void siftUp(int[] heap, int index) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (!better(heap[parent], heap[index])) {
+                    return;
+                }
+                swap(heap, parent, index);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int[] heap, int heapSize) {
+            int index = 0;
+            while (true) {
+                int worst = index;
+                for (int child = 2 * index + 1; child <= 2 * index + 2 && child < heapSize; child++) {
+                    if (better(heap[worst], heap[child])) {
+                        worst = child;
+                    }
+                }
+                if (worst == index) {
+                    return;
+                }
+                swap(heap, index, worst);
+                index = worst;
+            }
+        }
+
+        private static void swap(int[] heap, int i, int j) {
+            int slot = heap[i];
+            heap[i] = heap[j];
+            heap[j] = slot;
+        }
+    }
+
+    /**
+     * The indexed units and their postings.
+     */
+    private static final class Units {
+        private final Map<String, Postings> terms = new HashMap<>();
+        private long[] unitMovies = new long[64];
+        private int[] unitLengths = new int[64];
+        private float[] unitWeights = new float[64];
+        private int unitCount;
+        private long totalLength;
+        private int movieCount;
+
+        void add(long movieId, String text, float weight) {
+            add(movieId, tokenize(text), weight);
+        }
+
+        void add(long movieId, List<String> tokens, float weight) {
+            // Group token positions by term
+            Map<String, int[]> positionsByTerm = new HashMap<>();
+            Map<String, Integer> counts = new HashMap<>();
+            for (int position = 0; position < tokens.size(); position++) {
+                String token = tokens.get(position);
+                int count = counts.getOrDefault(token, 0);
+                int[] positions = positionsByTerm.get(token);
+                if (positions == null) {
+                    positions = new int[4];
+                } else if (count == positions.length) {
+                    positions = Arrays.copyOf(positions, count * 2);
+                }
+                positions[count] = position;
+                positionsByTerm.put(token, positions);
+                counts.put(token, count + 1);
+            }
+
+            int unit = unitCount++;
+            if (unit == unitMovies.length) {
+                unitMovies = Arrays.copyOf(unitMovies, unit * 2);
+                unitLengths = Arrays.copyOf(unitLengths, unit * 2);
+                unitWeights = Arrays.copyOf(unitWeights, unit * 2);
+            }
+            unitMovies[unit] = movieId;
+            unitLengths[unit] = tokens.size();
+            unitWeights[unit] = weight;
+            totalLength += tokens.size();
+            for (Map.Entry<String, int[]> entry : positionsByTerm.entrySet()) {
+                terms.computeIfAbsent(entry.getKey(), key -> new Postings())
+                    .add(unit, entry.getValue(), counts.get(entry.getKey()));
+            }
+        }
+    }
+
+    private final MovieService movieService;
+    private final ReviewService reviewService;
+    private final UserReviewStore userReviewStore;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private Units units;
+    // Reviews added while a rebuild is running, or null; guarded by lock
+    private List<Map.Entry<Long, Review>> pendingReviews;
+
+    @Autowired
+    public SearchIndex(MovieService movieService, ReviewService reviewService, UserReviewStore userReviewStore) {
+        this.movieService = movieService;
+        this.reviewService = reviewService;
+        this.userReviewStore = userReviewStore;
+        this.units = build(Collections.newSetFromMap(new IdentityHashMap<>()));
+        logger.info("Indexed {} texts with {} distinct terms for search", units.unitCount, units.terms.size());
+    }
+
+    /**
+     * Indexes the current catalog and reviews into new units, remembering which
+     * shared reviews were included.
+     */
+    private Units build(Set<Review> indexedReviews) {
+        Units built = new Units();
+        MovieColumns movies = movieService.getColumns();
+        for (int i = 0; i < movies.size(); i++) {
+            long movieId = movies.getId(i);
+            built.add(movieId, movies.getMovieName(i), NAME_WEIGHT);
+            built.add(movieId, movies.getDescription(i), DESCRIPTION_WEIGHT);
+            built.movieCount++;
+        }
+        addReviews(built, reviewService.getAllReviews(), null);
+        if (userReviewStore.isShared()) {
+            addReviews(built, userReviewStore.getAllSharedReviews(), indexedReviews);
+        }
+        return built;
+    }
+
+    private static void addReviews(Units target, Map<Long, List<Review>> reviewsByMovie, Set<Review> indexedReviews) {
+        for (Map.Entry<Long, List<Review>> entry : reviewsByMovie.entrySet()) {
+            for (Review review : entry.getValue()) {
+                target.add(entry.getKey(), review.getComment(), REVIEW_WEIGHT);
+                if (indexedReviews != null) {
+                    indexedReviews.add(review);
+                }
+            }
+        }
+    }
+
+    /**
+     * Indexes the current catalog from scratch, e.g. after it was reloaded.
+     * Searches keep using the previous index until the new one is complete;
+     * reviews added in the meantime are carried over.
+     */
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingReviews = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Set<Review> indexedReviews = Collections.newSetFromMap(new IdentityHashMap<>());
+        Units rebuilt = build(indexedReviews);
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Long, Review> pending : pendingReviews) {
+                if (!indexedReviews.contains(pending.getValue())) {
+                    rebuilt.add(pending.getKey(), pending.getValue().getComment(), REVIEW_WEIGHT);
+                }
+            }
+            pendingReviews = null;
+            units = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Rebuilt search index with {} texts and {} distinct terms", rebuilt.unitCount, rebuilt.terms.size());
+    }
+
+    /**
+     * Makes a newly accepted review searchable.
+     */
+    public void addReview(long movieId, Review review) {
+        List<String> tokens = tokenize(review.getComment());
+        lock.writeLock().lock();
+        try {
+            units.add(movieId, tokens, REVIEW_WEIGHT);
+            if (pendingReviews != null) {
+                pendingReviews.add(new AbstractMap.SimpleImmutableEntry<>(movieId, review));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the IDs of the best matching movies, best first.
+     */
+    public List<Long> search(String query) {
+        List<List<String>> clauses = parseQuery(query);
+        if (clauses.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Scores scores;
+        lock.readLock().lock();
+        try {
+            scores = new Scores(countUnits(units, clauses));
+            double averageLength = units.unitCount == 0 ? 0 : (double) units.totalLength / units.unitCount;
+            for (List<String> clause : clauses) {
+                scoreClause(units, clause, averageLength, scores);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return scores.top(MAX_RESULTS);
+    }
+
+    /**
+     * Returns an upper bound of the movies that can match: the units that can
+     * match, or every movie.
+     */
+    private static int countUnits(Units units, List<List<String>> clauses) {
+        long count = 0;
+        for (List<String> clause : clauses) {
+            // A phrase matches at most the units of its first term
+            Postings postings = units.terms.get(clause.get(0));
+            count += postings != null ? postings.unitCount : 0;
+        }
+        return (int) Math.min(count, units.movieCount);
+    }
+
+    /**
+     * Adds the BM25 scores of a single term or a phrase. A phrase scores as the
+     * sum of its terms in the units where they occur consecutively.
+     */
+    private static void scoreClause(Units units, List<String> clause, double averageLength, Scores scores) {
+        PostingsCursor[] cursors = new PostingsCursor[clause.size()];
+        double[] idf = new double[clause.size()];
+        for (int i = 0; i < clause.size(); i++) {
+            Postings postings = units.terms.get(clause.get(i));
+            if (postings == null) {
+                return;
+            }
+            cursors[i] = new PostingsCursor(postings);
+            idf[i] = Math.log(1 + (units.unitCount - postings.unitCount + 0.5) / (postings.unitCount + 0.5));
+            if (!cursors[i].next()) {
+                return;
+            }
+        }
+
+        // A movie's units are mostly consecutive, so their scores are summed before they are added
+        long movie = Scores.EMPTY;
+        double movieScore = 0;
+        scan:
+        while (true) {
+            // Advance every cursor to the highest current unit until they agree
+            int target = cursors[0].unit;
+            for (PostingsCursor cursor : cursors) {
+                target = Math.max(target, cursor.unit);
+            }
+            boolean aligned = true;
+            for (PostingsCursor cursor : cursors) {
+                while (cursor.unit < target) {
+                    if (!cursor.next()) {
+                        break scan;
+                    }
+                }
+                aligned &= cursor.unit == target;
+            }
+            if (!aligned) {
+                continue;
+            }
+
+            int phraseFrequency = cursors.length == 1 ? cursors[0].frequency : countPhrase(cursors);
+            if (phraseFrequency > 0) {
+                double lengthNorm = K1 * (1 - B + B * units.unitLengths[target] / averageLength);
+                double score = 0;
+                for (int i = 0; i < cursors.length; i++) {
+                    int frequency = cursors.length == 1 ? cursors[i].frequency : phraseFrequency;
+                    score += idf[i] * frequency * (K1 + 1) / (frequency + lengthNorm);
+                }
+                if (units.unitMovies[target] != movie) {
+                    if (movie != Scores.EMPTY) {
+                        scores.add(movie, movieScore);
+                    }
+                    movie = units.unitMovies[target];
+                    movieScore = 0;
+                }
+                movieScore += score * units.unitWeights[target];
+            }
+            if (!cursors[0].next()) {
+                break;
+            }
+        }
+        if (movie != Scores.EMPTY) {
+            scores.add(movie, movieScore);
+        }
+    }
+
+    private static int countPhrase(PostingsCursor[] cursors) {
+        int matches = 0;
+        for (int p = 0; p < cursors[0].frequency; p++) {
+            int start = cursors[0].positions[p];
+            boolean match = true;
+            for (int i = 1; i < cursors.length && match; i++) {
+                match = Arrays.binarySearch(cursors[i].positions, 0, cursors[i].frequency, start + i) >= 0;
+            }
+            if (match) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Splits a query into single-term clauses and quoted phrases.
+     */
+    static List<List<String>> parseQuery(String query) {
+        List<List<String>> clauses = new ArrayList<>();
+        if (query == null) {
+            return clauses;
+        }
+        String[] parts = query.split("\"", -1);
+        for (int i = 0; i < parts.length; i++) {
+            List<String> tokens = tokenize(parts[i]);
+            if (i % 2 == 1 && tokens.size() > 1) {
+                clauses.add(tokens);
+            } else {
+                for (String token : tokens) {
+                    clauses.add(Collections.singletonList(token));
+                }
+            }
+        }
+        return clauses;
+    }
+
+    /**
+     * Splits text into lowercase runs of letters and digits.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,83 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import javax.servlet.http.HttpSession;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps user reviews in the submitting user's {@link HttpSession}, so they are
+ * only visible to that user and are lost when the session expires. Reviews are
+ * held in the compact {@link UserSession} state rather than as review objects.
+ */
+@Repository
+@ConditionalOnProperty(name = "reviews.store", havingValue = "session")
+public class SessionUserReviewStore implements UserReviewStore {
+    private static final Logger logger = LogManager.getLogger(SessionUserReviewStore.class);
+
+    private final LongAdder storedReviews = new LongAdder();
+    private final LongAdder addedBytes = new LongAdder();
+
+    @Override
+    public List<Review> getReviews(long movieId, HttpSession session) {
+        UserSession user = UserSession.get(session);
+        if (user == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(user.getReviews(movieId));
+    }
+
+    @Override
+    public void addReview(long movieId, Review review, HttpSession session) {
+        UserSession user = UserSession.getOrCreate(session);
+        user.addReview(movieId, review);
+        user.saveTo(session);
+        logger.debug("Stored review {} of the session for movie {}", user.getReviewCount(), movieId);
+        storedReviews.increment();
+        addedBytes.add(estimateBytes(review));
+    }
+
+    /**
+     * Estimates the heap a review retains in the session: its movie ID, name
+     * index and rating slots, and the comment string with its UTF-16 chars.
+     */
+    static long estimateBytes(Review review) {
+        return 8 + 4 + 1 + stringBytes(review.getComment());
+    }
+
+    private static long stringBytes(String value) {
+        return value == null ? 0 : 40 + 2L * value.length();
+    }
+
+    /**
+     * Returns the number of reviews stored in sessions since startup.
+     */
+    public long getStoredReviews() {
+        return storedReviews.sum();
+    }
+
+    /**
+     * Returns the estimated bytes of all reviews added to sessions since
+     * startup. Reviews of expired sessions are still counted, so this is a
+     * total rather than the memory sessions currently hold.
+     */
+    public long getAddedBytes() {
+        return addedBytes.sum();
+    }
+
+    @Override
+    public Map<Long, List<Review>> getAllSharedReviews() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public boolean isShared() {
+        return false;
+    }
+}
@@ -0,0 +1,51 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.resource.ResourceUrlProvider;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Lets browsers keep fingerprinted static assets for a year without
+ * revalidating them. Templates link to CSS and JavaScript through the resource
+ * chain, which adds the MD5 of the content to the file name, e.g.
+ * {@code /css/movies-1b2c….css}; a changed file gets a new URL, so the old one
+ * can never go stale. Only the current fingerprint of an asset is marked
+ * immutable; plain asset URLs keep the default caching.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.web.resources.chain.strategy.content.enabled", havingValue = "true")
+public class StaticAssetCacheFilter extends OncePerRequestFilter {
+    static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final Pattern FINGERPRINTED = Pattern.compile("(/(?:css|js)/.+)-[0-9a-f]{32}(\\.(?:css|js))");
+
+    @Autowired
+    private ResourceUrlProvider resourceUrlProvider;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String method = request.getMethod();
+        return !"GET".equals(method) && !"HEAD".equals(method);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        Matcher matcher = FINGERPRINTED.matcher(path);
+        // The resource chain caches the fingerprint of each asset, so the lookup is cheap
+        if (matcher.matches() && path.equals(resourceUrlProvider.getForLookupPath(matcher.group(1) + matcher.group(2)))) {
+            response.setHeader("Cache-Control", IMMUTABLE);
+        }
+        chain.doFilter(request, response);
+    }
+}
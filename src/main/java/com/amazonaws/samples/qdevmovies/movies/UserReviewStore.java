@@ -0,0 +1,40 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import javax.servlet.http.HttpSession;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Storage for reviews submitted by users, as opposed to the read-only mock
+ * reviews served by {@link ReviewService}. The implementation is selected with
+ * the {@code reviews.store} property.
+ */
+public interface UserReviewStore {
+
+    /**
+     * Returns the user reviews visible to the given session for a movie.
+     * @param movieId The movie ID
+     * @param session The current session, may be null
+     * @return An unmodifiable list of reviews, never null
+     */
+    List<Review> getReviews(long movieId, HttpSession session);
+
+    /**
+     * Stores a review that has already passed validation.
+     * @param movieId The movie ID
+     * @param review The review to store
+     * @param session The current session
+     */
+    void addReview(long movieId, Review review, HttpSession session);
+
+    /**
+     * Returns the reviews visible to every user, keyed by movie ID. Stores that
+     * keep reviews private to a session return an empty map.
+     */
+    Map<Long, List<Review>> getAllSharedReviews();
+
+    /**
+     * Returns whether reviews in this store are visible to every user.
+     */
+    boolean isShared();
+}
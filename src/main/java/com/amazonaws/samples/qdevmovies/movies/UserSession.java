@@ -0,0 +1,316 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.Avatars;
+
+import javax.servlet.http.HttpSession;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Everything the application keeps in a user's HTTP session, as one session
+ * attribute that serializes itself compactly, so that sessions can be stored
+ * outside the JVM or replicated between nodes.
+ *
+ * <p>It holds the user name, the avatar as a one-byte {@link Avatars} code and,
+ * with the session review store, the reviews the user wrote. A review keeps its
+ * movie ID, rating in half stars and comment; its author refers to a table of
+ * the names the user wrote under, and its avatar is the session's.
+ *
+ * <p>Reviews are held by value rather than as references to a review store:
+ * with the session store they are private to the session and recorded nowhere
+ * else, so the session is their only copy. The shared stores keep reviews in
+ * the store itself and put none in the session.
+ *
+ * <p>Serialization writes the encoding below as one length-prefixed block, and
+ * counts the sessions, bytes and time spent so that the cost shows in metrics.
+ * Encoding, version 1, with unsigned variable-length integers and strings as
+ * their UTF-8 length plus one (zero for null) followed by the bytes:
+ * <pre>
+ *   byte version, string userName, byte avatar,
+ *   varint nameCount, string[nameCount] names,
+ *   varint reviewCount, per review: varint movieId, varint name index, byte half stars, string comment
+ * </pre>
+ */
+public class UserSession implements Externalizable {
+    static final String ATTRIBUTE = "user";
+    private static final long serialVersionUID = 1L;
+    private static final byte VERSION = 1;
+
+    private static final LongAdder serializations = new LongAdder();
+    private static final LongAdder serializedBytes = new LongAdder();
+    private static final LongAdder serializationNanos = new LongAdder();
+
+    private String userName;
+    private byte avatar = Avatars.NONE;
+    private List<String> names = new ArrayList<>(1);
+    private int reviewCount;
+    private long[] reviewMovies = new long[0];
+    private int[] reviewNames = new int[0];
+    private byte[] reviewHalfStars = new byte[0];
+    private String[] reviewComments = new String[0];
+
+    /**
+     * Creates an empty session; also used by deserialization.
+     */
+    public UserSession() {
+    }
+
+    /**
+     * Returns the session's state, or null if nothing was stored in it yet.
+     */
+    static UserSession get(HttpSession session) {
+        return session != null ? (UserSession) session.getAttribute(ATTRIBUTE) : null;
+    }
+
+    static UserSession getOrCreate(HttpSession session) {
+        UserSession user = get(session);
+        if (user == null) {
+            user = new UserSession();
+            session.setAttribute(ATTRIBUTE, user);
+        }
+        return user;
+    }
+
+    /**
+     * Stores the state in the session again after it changed, so that session
+     * managers that only replicate changed attributes pick it up.
+     */
+    void saveTo(HttpSession session) {
+        session.setAttribute(ATTRIBUTE, this);
+    }
+
+    public synchronized String getUserName() {
+        return userName;
+    }
+
+    public synchronized void setUserName(String userName) {
+        this.userName = userName;
+    }
+
+    /**
+     * Returns the avatar emoji, or null if none was picked yet.
+     */
+    public synchronized String getAvatar() {
+        return Avatars.emoji(avatar);
+    }
+
+    public synchronized void setAvatar(byte code) {
+        this.avatar = code;
+    }
+
+    /**
+     * Stores a review written in this session. Its avatar is the session's.
+     */
+    public synchronized void addReview(long movieId, Review review) {
+        int name = names.indexOf(review.getUserName());
+        if (name < 0) {
+            name = names.size();
+            names.add(review.getUserName());
+        }
+        if (reviewCount == reviewMovies.length) {
+            int capacity = Math.max(4, reviewCount * 2);
+            reviewMovies = Arrays.copyOf(reviewMovies, capacity);
+            reviewNames = Arrays.copyOf(reviewNames, capacity);
+            reviewHalfStars = Arrays.copyOf(reviewHalfStars, capacity);
+            reviewComments = Arrays.copyOf(reviewComments, capacity);
+        }
+        reviewMovies[reviewCount] = movieId;
+        reviewNames[reviewCount] = name;
+        reviewHalfStars[reviewCount] = (byte) Math.round(review.getRating() * 2);
+        reviewComments[reviewCount] = review.getComment();
+        reviewCount++;
+    }
+
+    /**
+     * Returns the reviews written in this session for a movie, oldest first.
+     */
+    public synchronized List<Review> getReviews(long movieId) {
+        List<Review> reviews = null;
+        for (int i = 0; i < reviewCount; i++) {
+            if (reviewMovies[i] == movieId) {
+                if (reviews == null) {
+                    reviews = new ArrayList<>();
+                }
+                reviews.add(new Review(names.get(reviewNames[i]), Avatars.emoji(avatar),
+                    reviewHalfStars[i] / 2.0, reviewComments[i]));
+            }
+        }
+        return reviews != null ? reviews : Collections.<Review>emptyList();
+    }
+
+    public synchronized int getReviewCount() {
+        return reviewCount;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        long start = System.nanoTime();
+        byte[] bytes = toBytes();
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        serializationNanos.add(System.nanoTime() - start);
+        serializedBytes.add(bytes.length);
+        serializations.increment();
+    }
+
+    @Override
+    public synchronized void readExternal(ObjectInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > 1 << 24) {
+            throw new InvalidObjectException("Implausible session length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        readFrom(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    /**
+     * Returns how many sessions were serialized since startup.
+     */
+    public static long getSerializations() {
+        return serializations.sum();
+    }
+
+    /**
+     * Returns the encoded bytes of all sessions serialized since startup.
+     */
+    public static long getSerializedBytes() {
+        return serializedBytes.sum();
+    }
+
+    public static long getSerializationNanos() {
+        return serializationNanos.sum();
+    }
+
+    /**
+     * Returns the encoded state, as written by serialization without the stream headers.
+     */
+    public synchronized byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + 64 * reviewCount);
+        try {
+            writeTo(new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static UserSession fromBytes(byte[] bytes) throws IOException {
+        UserSession user = new UserSession();
+        user.readFrom(new DataInputStream(new ByteArrayInputStream(bytes)));
+        return user;
+    }
+
+    private void writeTo(DataOutput out) throws IOException {
+        out.writeByte(VERSION);
+        writeString(out, userName);
+        out.writeByte(avatar);
+        writeVarLong(out, names.size());
+        for (String name : names) {
+            writeString(out, name);
+        }
+        writeVarLong(out, reviewCount);
+        for (int i = 0; i < reviewCount; i++) {
+            writeVarLong(out, reviewMovies[i]);
+            writeVarLong(out, reviewNames[i]);
+            out.writeByte(reviewHalfStars[i]);
+            writeString(out, reviewComments[i]);
+        }
+    }
+
+    private void readFrom(DataInput in) throws IOException {
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new InvalidObjectException("Unsupported session version " + version);
+        }
+        userName = readString(in);
+        avatar = in.readByte();
+        int nameCount = readCount(in);
+        names = new ArrayList<>(nameCount);
+        for (int i = 0; i < nameCount; i++) {
+            names.add(readString(in));
+        }
+        reviewCount = readCount(in);
+        reviewMovies = new long[reviewCount];
+        reviewNames = new int[reviewCount];
+        reviewHalfStars = new byte[reviewCount];
+        reviewComments = new String[reviewCount];
+        for (int i = 0; i < reviewCount; i++) {
+            reviewMovies[i] = readVarLong(in);
+            reviewNames[i] = readCount(in);
+            if (reviewNames[i] >= nameCount) {
+                throw new InvalidObjectException("Review refers to unknown name " + reviewNames[i]);
+            }
+            reviewHalfStars[i] = in.readByte();
+            reviewComments[i] = readString(in);
+        }
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length + 1L);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = readCount(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > 63) {
+                throw new InvalidObjectException("Malformed variable-length integer");
+            }
+            b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    // Counts and lengths are bounded so that a corrupt session cannot request a huge allocation
+    private static int readCount(DataInput in) throws IOException {
+        long count = readVarLong(in);
+        if (count > 1 << 20) {
+            throw new InvalidObjectException("Implausible count " + count);
+        }
+        return (int) count;
+    }
+}
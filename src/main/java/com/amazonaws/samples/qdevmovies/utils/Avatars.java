@@ -0,0 +1,39 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import java.util.Random;
+
+/**
+ * The avatars handed out to users who write reviews, interned so that a
+ * session keeps a one-byte code instead of the emoji string.
+ */
+public class Avatars {
+    public static final byte NONE = -1;
+
+    private static final String[] EMOJI = {"👨", "👩", "🧑", "👴", "👵", "🧒"};
+
+    /**
+     * Picks an avatar at random.
+     */
+    public static byte random(Random random) {
+        return (byte) random.nextInt(EMOJI.length);
+    }
+
+    /**
+     * Returns the emoji of an avatar code, or null for {@link #NONE} or an unknown code.
+     */
+    public static String emoji(byte code) {
+        return code >= 0 && code < EMOJI.length ? EMOJI[code] : null;
+    }
+
+    /**
+     * Returns the code of an avatar emoji, or {@link #NONE} if it is not one of ours.
+     */
+    public static byte codeOf(String emoji) {
+        for (int i = 0; i < EMOJI.length; i++) {
+            if (EMOJI[i].equals(emoji)) {
+                return (byte) i;
+            }
+        }
+        return NONE;
+    }
+}
@@ -0,0 +1,52 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import java.util.Locale;
+
+/**
+ * Display strings for ratings on the 0-5 scale, taken from tables built once
+ * so that rendering a rating allocates nothing.
+ */
+public class RatingFormat {
+    public static final int MAX_STARS = 5;
+
+    // Ratings rounded to one decimal, "0.0" to "5.0"
+    private static final String[] DECIMALS = new String[MAX_STARS * 10 + 1];
+    // Star strings by whole stars, then with a half star
+    private static final String[] STARS = new String[(MAX_STARS + 1) * 2];
+
+    static {
+        for (int tenths = 0; tenths < DECIMALS.length; tenths++) {
+            DECIMALS[tenths] = (tenths / 10) + "." + (tenths % 10);
+        }
+        for (int full = 0; full <= MAX_STARS; full++) {
+            for (int half = 0; half <= 1; half++) {
+                StringBuilder stars = new StringBuilder();
+                for (int i = 1; i <= MAX_STARS; i++) {
+                    stars.append(i <= full ? '★' : i == full + 1 && half == 1 ? "⭐" : "☆");
+                }
+                STARS[full * 2 + half] = stars.toString();
+            }
+        }
+    }
+
+    /**
+     * Formats a rating with one decimal, e.g. "4.5".
+     */
+    public static String format(double rating) {
+        long tenths = Math.round(rating * 10);
+        if (tenths >= 0 && tenths < DECIMALS.length) {
+            return DECIMALS[(int) tenths];
+        }
+        return String.format(Locale.ROOT, "%.1f", rating);
+    }
+
+    /**
+     * Returns five stars for a rating: one full star per whole point, a half
+     * star for an exact half point, and empty stars for the rest.
+     */
+    public static String stars(double rating) {
+        int full = (int) Math.max(0, Math.min(MAX_STARS, Math.floor(rating)));
+        int half = full < MAX_STARS && rating - full == 0.5 ? 1 : 0;
+        return STARS[full * 2 + half];
+    }
+}
@@ -4,9 +4,27 @@ function openReviewModal() {
     if (modal) {
         modal.style.display = 'block';
         document.body.style.overflow = 'hidden'; // Prevent background scrolling
+        fillStoredUserName();
     }
 }
 
+// The detail page is cached and shared between users, so per-session values
+// are fetched separately instead of being rendered into it
+function fillStoredUserName() {
+    const userNameInput = document.getElementById('userName');
+    if (!userNameInput || userNameInput.value || !userNameInput.dataset.sessionUser) {
+        return;
+    }
+    fetch(userNameInput.dataset.sessionUser, { credentials: 'same-origin' })
+        .then(response => response.ok ? response.json() : {})
+        .then(user => {
+            if (user.userName && !userNameInput.value) {
+                userNameInput.value = user.userName;
+            }
+        })
+        .catch(() => {});
+}
+
 function closeReviewModal() {
     const modal = document.getElementById('reviewModal');
     if (modal) {
@@ -32,6 +50,16 @@ function closeReviewModal() {
 document.addEventListener('DOMContentLoaded', function() {
     // Check if URL has success parameter (you'll need to add this to controller)
     const urlParams = new URLSearchParams(window.location.search);
+    
+    // Auto-open modal if the review was rejected
+    const error = urlParams.get('error');
+    const errorDiv = document.getElementById('reviewError');
+    if (error && errorDiv) {
+        errorDiv.textContent = error;
+        errorDiv.style.display = 'block';
+        openReviewModal();
+    }
+    
     if (urlParams.get('reviewAdded') === 'true') {
         // Scroll to reviews section
         setTimeout(() => {
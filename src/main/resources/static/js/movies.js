@@ -0,0 +1,46 @@
+// Infinite scroll for the movie listing and a movie's reviews. When the "More"
+// link at the end of the list comes into view, the next page is fetched as an
+// HTML fragment and replaces the link; the fragment ends with the link to the
+// page after it. Without JavaScript the link simply opens the next page.
+document.addEventListener('DOMContentLoaded', function() {
+    if (!('IntersectionObserver' in window)) {
+        return;
+    }
+
+    document.querySelectorAll('.movies-grid, .review-list').forEach(list => {
+        const observer = new IntersectionObserver(entries => {
+            entries.forEach(entry => {
+                if (entry.isIntersecting) {
+                    loadMore(entry.target);
+                }
+            });
+        }, { rootMargin: '600px' });
+
+        function observeNextLink() {
+            const link = list.querySelector('.load-more');
+            if (link) {
+                observer.observe(link);
+            }
+        }
+
+        function loadMore(link) {
+            observer.unobserve(link);
+            fetch(link.dataset.fragment, { credentials: 'same-origin' })
+                .then(response => {
+                    if (!response.ok) {
+                        throw new Error('HTTP ' + response.status);
+                    }
+                    return response.text();
+                })
+                .then(html => {
+                    link.remove();
+                    list.insertAdjacentHTML('beforeend', html);
+                    observeNextLink();
+                })
+                // The link stays in place, so the user can still open the next page
+                .catch(() => {});
+        }
+
+        observeNextLink();
+    });
+});
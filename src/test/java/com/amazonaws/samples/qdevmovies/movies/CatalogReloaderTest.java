@@ -0,0 +1,186 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CatalogReloaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static String movie(long id, String name) {
+        return "{\"id\": " + id + ", \"movieName\": \"" + name + "\", \"director\": \"Ann\", \"year\": 1994,"
+            + " \"genre\": \"Drama\", \"description\": \"About " + name + "\", \"duration\": 142, \"imdbRating\": 4.5}";
+    }
+
+    private static void writeCatalog(Path file, String... movies) throws IOException {
+        // Write next to the catalog and rename, as a deployment would
+        Path tmp = file.resolveSibling("catalog.tmp");
+        Files.write(tmp, ("[" + String.join(",", movies) + "]").getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static ReviewService noReviews() {
+        return new ReviewService() {
+            @Override
+            public Map<Long, List<Review>> getAllReviews() {
+                return Collections.emptyMap();
+            }
+        };
+    }
+
+    @Test
+    public void testReloadSwapsCatalogAndKeepsItOnFailure() throws Exception {
+        Path file = tempDir.resolve("movies.json");
+        writeCatalog(file, movie(1, "Alpha"));
+        MovieService movieService = new MovieService(file.toString(), null);
+        List<Movie> before = movieService.getAllMovies();
+
+        writeCatalog(file, movie(1, "Alpha"), movie(2, "Bravo"));
+        assertEquals(2, movieService.reload());
+        assertEquals("Bravo", movieService.getMovieById(2L).get().getMovieName());
+        assertEquals(1, before.size());
+
+        Files.write(file, ("[" + movie(3, "Charlie") + ",{\"id\": 4,").getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, movieService::reload);
+        assertEquals(2, movieService.getAllMovies().size());
+        assertFalse(movieService.getMovieById(3L).isPresent());
+    }
+
+    @Test
+    public void testReloadRebuildsSearchIndex() throws Exception {
+        Path file = tempDir.resolve("movies.json");
+        writeCatalog(file, movie(1, "Alpha"));
+        MovieService movieService = new MovieService(file.toString(), null);
+        SessionUserReviewStore store = new SessionUserReviewStore();
+        SearchIndex searchIndex = new SearchIndex(movieService, noReviews(), store);
+        RenderedPageCache pageCache = new RenderedPageCache(10, 1 << 20);
+        pageCache.put("/movies", new RenderedPageCache.Page("/movies", new byte[10], "text/html", "\"e\""), pageCache.beginRender());
+        RecommendationService recommendations = new RecommendationService(movieService, noReviews(), store, pageCache, 6);
+        CatalogReloader reloader = new CatalogReloader("", 0, movieService, searchIndex, recommendations, pageCache);
+
+        writeCatalog(file, movie(2, "Bravo"));
+        assertTrue(reloader.reloadNow());
+        assertEquals(Collections.singletonList(2L), searchIndex.search("bravo"));
+        assertTrue(searchIndex.search("alpha").isEmpty());
+        assertEquals(0L, pageCache.getStats().get("entries"));
+        assertEquals(1L, reloader.getStats().get("reloads"));
+
+        Files.write(file, "not json".getBytes(StandardCharsets.UTF_8));
+        assertFalse(reloader.reloadNow());
+        assertEquals(1L, reloader.getStats().get("failures"));
+        assertEquals(Collections.singletonList(2L), searchIndex.search("bravo"));
+    }
+
+    @Test
+    public void testWatcherReloadsChangedFile() throws Exception {
+        Path file = tempDir.resolve("movies.json");
+        writeCatalog(file, movie(1, "Alpha"));
+        MovieService movieService = new MovieService(file.toString(), null);
+        SessionUserReviewStore store = new SessionUserReviewStore();
+        SearchIndex searchIndex = new SearchIndex(movieService, noReviews(), store);
+        RenderedPageCache pageCache = new RenderedPageCache(10, 1 << 20);
+        CatalogReloader reloader = new CatalogReloader(file.toString(), 50, movieService, searchIndex,
+            new RecommendationService(movieService, noReviews(), store, pageCache, 6), pageCache);
+        try {
+            writeCatalog(file, movie(1, "Alpha"), movie(2, "Bravo"), movie(3, "Charlie"));
+            long deadline = System.currentTimeMillis() + 10000;
+            while (movieService.getAllMovies().size() != 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(3, movieService.getAllMovies().size());
+        } finally {
+            reloader.close();
+        }
+    }
+
+    @Test
+    public void testFailedRebuildIsCountedAndWatchingContinues() throws Exception {
+        Path file = tempDir.resolve("movies.json");
+        writeCatalog(file, movie(1, "Alpha"));
+        MovieService movieService = new MovieService(file.toString(), null);
+        SessionUserReviewStore store = new SessionUserReviewStore();
+        SearchIndex searchIndex = new SearchIndex(movieService, noReviews(), store) {
+            @Override
+            public synchronized void rebuild() {
+                throw new IllegalStateException("broken index");
+            }
+        };
+        RenderedPageCache pageCache = new RenderedPageCache(10, 1 << 20);
+        pageCache.put("/movies", new RenderedPageCache.Page("/movies", new byte[10], "text/html", "\"e\""), pageCache.beginRender());
+        CatalogReloader reloader = new CatalogReloader(file.toString(), 50, movieService, searchIndex,
+            new RecommendationService(movieService, noReviews(), store, pageCache, 6), pageCache);
+        try {
+            writeCatalog(file, movie(1, "Alpha"), movie(2, "Bravo"));
+            awaitFailures(reloader, 1);
+            assertEquals(2, movieService.getAllMovies().size());
+            // Later rebuilds still ran
+            assertEquals(0L, pageCache.getStats().get("entries"));
+
+            writeCatalog(file, movie(1, "Alpha"), movie(2, "Bravo"), movie(3, "Charlie"));
+            awaitFailures(reloader, 2);
+            assertEquals(3, movieService.getAllMovies().size());
+        } finally {
+            reloader.close();
+        }
+    }
+
+    @Test
+    public void testFailedRecommendationsRebuildIsCounted() throws Exception {
+        Path file = tempDir.resolve("movies.json");
+        writeCatalog(file, movie(1, "Alpha"));
+        MovieService movieService = new MovieService(file.toString(), null);
+        SessionUserReviewStore store = new SessionUserReviewStore();
+        SearchIndex searchIndex = new SearchIndex(movieService, noReviews(), store);
+        RenderedPageCache pageCache = new RenderedPageCache(10, 1 << 20);
+        AtomicBoolean broken = new AtomicBoolean();
+        ReviewService reviews = new ReviewService() {
+            @Override
+            public Map<Long, List<Review>> getAllReviews() {
+                if (broken.get()) {
+                    throw new IllegalStateException("broken reviews");
+                }
+                return Collections.emptyMap();
+            }
+        };
+        RecommendationService recommendations = new RecommendationService(movieService, reviews, store, pageCache, 6);
+        CatalogReloader reloader = new CatalogReloader("", 0, movieService, searchIndex, recommendations, pageCache);
+        try {
+            broken.set(true);
+            writeCatalog(file, movie(1, "Alpha"), movie(2, "Bravo"));
+            assertFalse(reloader.reloadNow());
+            assertEquals(1L, reloader.getStats().get("failures"));
+            assertEquals(2, movieService.getAllMovies().size());
+
+            broken.set(false);
+            assertTrue(reloader.reloadNow());
+            assertEquals(1L, reloader.getStats().get("failures"));
+        } finally {
+            reloader.close();
+            recommendations.close();
+        }
+    }
+
+    private static void awaitFailures(CatalogReloader reloader, long failures) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (reloader.getStats().get("failures") < failures && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(failures, reloader.getStats().get("failures"));
+    }
+}
@@ -0,0 +1,104 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CatalogSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Path file = tempDir.resolve("catalog.snapshot");
+        List<Movie> movies = Arrays.asList(
+            new Movie(7L, "Alpha", "Ann", 1994, "Drama", "First ✓", 142, 4.5),
+            new Movie(3L, "Bravo", "Ann", 1972, "Crime/Drama", "Second", 175, 5.0, "🚀")
+        );
+        Map<Long, List<Review>> reviews = Collections.singletonMap(3L,
+            Arrays.asList(new Review("Alice", "👩", 4.5, "Loved it"), new Review("Bob", "👩", 3.0, "Fine")));
+        CatalogSnapshot.write(file, 42L, movies, reviews);
+
+        CatalogSnapshot snapshot = CatalogSnapshot.open(file);
+        assertEquals(42L, snapshot.getSourceStamp());
+        assertEquals(1, snapshot.getDirectorCount());
+        assertEquals("Ann", snapshot.getDirectorName(snapshot.getDirector(1)));
+        assertEquals("Crime/Drama", snapshot.getGenreName(snapshot.getGenre(1)));
+        assertEquals(1972, snapshot.getYear(1));
+        List<Movie> read = snapshot.getMovies();
+        assertEquals(2, read.size());
+        assertEquals(7L, read.get(0).getId());
+        assertEquals("First ✓", read.get(0).getDescription());
+        assertEquals("Crime/Drama", read.get(1).getGenre());
+        assertEquals(5.0, read.get(1).getImdbRating());
+        assertEquals(Movie.DEFAULT_ICON, read.get(0).getIcon());
+        assertEquals("🚀", read.get(1).getIcon());
+        assertEquals("Bravo", snapshot.getMovie(1).getMovieName());
+        List<Review> readReviews = snapshot.readReviews().get(3L);
+        assertEquals("Bob", readReviews.get(1).getUserName());
+        assertEquals("👩", readReviews.get(1).getAvatarEmoji());
+    }
+
+    @Test
+    public void testCorruptSnapshotIsRejected() throws Exception {
+        Path file = tempDir.resolve("catalog.snapshot");
+        CatalogSnapshot.write(file, 1L, Arrays.asList(new Movie(1L, "Alpha", "Ann", 1994, "Drama", "A", 142, 4.5)),
+            Collections.emptyMap());
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(raf.length() - 1);
+            raf.write('X');
+        }
+        assertThrows(IOException.class, () -> CatalogSnapshot.open(file));
+    }
+
+    @Test
+    public void testSnapshotLargerThanTheLimitIsNotWritten() throws Exception {
+        Path file = tempDir.resolve("catalog.snapshot");
+        List<Movie> movies = Arrays.asList(new Movie(1L, "Alpha", "Ann", 1994, "Drama", "A", 142, 4.5, "🚀"));
+        Map<Long, List<Review>> reviews = Collections.singletonMap(1L,
+            Collections.singletonList(new Review("Alice", "👩", 4.5, "Loved it")));
+        assertTrue(CatalogSnapshot.write(file, 1L, movies, reviews));
+        long size = Files.size(file);
+        Files.delete(file);
+
+        assertFalse(CatalogSnapshot.write(file, 1L, movies, reviews, size - 1));
+        assertFalse(Files.exists(file));
+        assertTrue(CatalogSnapshot.write(file, 1L, movies, reviews, size));
+        assertEquals(size, Files.size(file));
+    }
+
+    @Test
+    public void testManagerRebuildsStaleSnapshot() throws Exception {
+        Path file = tempDir.resolve("catalog.snapshot");
+        CatalogSnapshot.write(file, 1L, Collections.emptyList(), Collections.emptyMap());
+
+        CatalogSnapshotManager manager = new CatalogSnapshotManager(file.toString(), "", "");
+        assertNotNull(manager.getSnapshot());
+        assertEquals(12, manager.getSnapshot().getMovieCount());
+        assertEquals(new MovieService().getAllMovies().size(),
+            new MovieService("", manager).getAllMovies().size());
+        assertEquals(new ReviewService().getReviewsForMovie(1L).size(),
+            new ReviewService(manager, "").getReviewsForMovie(1L).size());
+        long modified = Files.getLastModifiedTime(file).toMillis();
+
+        // A fresh snapshot is reused rather than rebuilt
+        Thread.sleep(10);
+        new CatalogSnapshotManager(file.toString(), "", "");
+        assertEquals(modified, Files.getLastModifiedTime(file).toMillis());
+    }
+}
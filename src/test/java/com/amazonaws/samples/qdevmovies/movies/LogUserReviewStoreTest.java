@@ -0,0 +1,126 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LogUserReviewStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private LogUserReviewStore openStore(Path logPath) throws Exception {
+        return new LogUserReviewStore(logPath.toString(), 0, 0, 100, 16, 1);
+    }
+
+    @Test
+    public void testReviewsAreSharedAcrossSessions() throws Exception {
+        LogUserReviewStore store = openStore(tempDir.resolve("reviews.log"));
+        store.addReview(1L, new Review("Alice", "👩", 5.0, "One of the best films ever made"), null);
+        assertEquals(1, store.getReviews(1L, null).size());
+        assertTrue(store.getReviews(2L, null).isEmpty());
+        store.close();
+    }
+
+    @Test
+    public void testReviewsSurviveRestart() throws Exception {
+        Path logPath = tempDir.resolve("reviews.log");
+        LogUserReviewStore store = openStore(logPath);
+        store.addReview(1L, new Review("Alice", "👩", 5.0, "One of the best films ever made"), null);
+        store.addReview(1L, new Review("Bob", "👨", 4.0, "Great acting and a gripping story"), null);
+        store.close();
+
+        LogUserReviewStore reopened = openStore(logPath);
+        List<Review> reviews = reopened.getReviews(1L, null);
+        assertEquals(2, reviews.size());
+        assertEquals("Alice", reviews.get(0).getUserName());
+        assertEquals("Bob", reviews.get(1).getUserName());
+        reopened.close();
+    }
+
+    @Test
+    public void testRecoverySkipsMalformedAndTornRecords() throws Exception {
+        Path logPath = tempDir.resolve("reviews.log");
+        LogUserReviewStore store = openStore(logPath);
+        store.addReview(1L, new Review("Alice", "👩", 5.0, "One of the best films ever made"), null);
+        store.close();
+        Files.write(logPath, "not json\n{\"movieId\":1,\"userName\":\"Bo".getBytes(StandardCharsets.UTF_8),
+            StandardOpenOption.APPEND);
+
+        LogUserReviewStore reopened = openStore(logPath);
+        assertEquals(1, reopened.getReviews(1L, null).size());
+        reopened.addReview(1L, new Review("Carol", "🧑", 3.0, "Solid film with a slow start"), null);
+        reopened.close();
+
+        assertEquals(2, Files.readAllLines(logPath, StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    public void testQueuedReviewsAreVisibleBeforeTheyAreWritten() throws Exception {
+        Path logPath = tempDir.resolve("reviews.log");
+        LogUserReviewStore store = new LogUserReviewStore(logPath.toString(), 0, 0, 10, 16, 1, false);
+        store.addReview(1L, new Review("Alice", "👩", 5.0, "One of the best films ever made"), null);
+        store.addReview(1L, new Review("Bob", "👨", 4.0, "Great acting and a gripping story"), null);
+
+        assertEquals(2, store.getReviews(1L, null).size());
+        assertEquals(2, store.getQueueDepth());
+        assertEquals(0, Files.size(logPath));
+
+        store.flush();
+        assertEquals(0, store.getQueueDepth());
+        assertEquals(1, store.getFlushCount());
+        assertEquals(2, Files.readAllLines(logPath, StandardCharsets.UTF_8).size());
+        store.close();
+    }
+
+    @Test
+    public void testFullQueueRejectsReviews() throws Exception {
+        LogUserReviewStore store = new LogUserReviewStore(tempDir.resolve("reviews.log").toString(), 0, 0, 1, 16, 1, false);
+        store.addReview(1L, new Review("Alice", "👩", 5.0, "One of the best films ever made"), null);
+        assertThrows(ReviewQueueFullException.class,
+            () -> store.addReview(1L, new Review("Bob", "👨", 4.0, "Great acting and a gripping story"), null));
+
+        assertEquals(1, store.getReviews(1L, null).size());
+        store.flush();
+        store.addReview(1L, new Review("Bob", "👨", 4.0, "Great acting and a gripping story"), null);
+        assertEquals(2, store.getReviews(1L, null).size());
+        store.close();
+    }
+
+    @Test
+    public void testCompactionDoesNotWriteQueuedReviewsTwice() throws Exception {
+        Path logPath = tempDir.resolve("reviews.log");
+        LogUserReviewStore store = new LogUserReviewStore(logPath.toString(), 0, 0, 10, 16, 1, false);
+        store.addReview(1L, new Review("Alice", "👩", 5.0, "One of the best films ever made"), null);
+        store.compact();
+        store.addReview(2L, new Review("Bob", "👨", 4.0, "Great acting and a gripping story"), null);
+        store.close();
+
+        assertEquals(2, Files.readAllLines(logPath, StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    public void testWriterFlushesInBackground() throws Exception {
+        Path logPath = tempDir.resolve("reviews.log");
+        LogUserReviewStore store = openStore(logPath);
+        for (int i = 0; i < 50; i++) {
+            store.addReview(i, new Review("Alice", "👩", 5.0, "One of the best films ever made"), null);
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (store.getFlushedRecords() < 50 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(50, store.getFlushedRecords());
+        assertEquals(50, Files.readAllLines(logPath, StandardCharsets.UTF_8).size());
+        store.close();
+    }
+}
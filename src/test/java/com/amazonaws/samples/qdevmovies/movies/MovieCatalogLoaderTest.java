@@ -0,0 +1,87 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MovieCatalogLoaderTest {
+
+    private static final String VALID = "{\"id\": 1, \"movieName\": \"Alpha\", \"director\": \"Ann\", \"year\": 1994,"
+        + " \"genre\": \"Drama\", \"description\": \"A\", \"duration\": 142, \"imdbRating\": 4.5}";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testInvalidRecordsAreSkippedIndividually() throws Exception {
+        String json = "[" + VALID + ","
+            + "{\"id\": 2, \"movieName\": \"Missing fields\"},"
+            + "{\"id\": \"three\", \"movieName\": \"Bad\", \"director\": \"D\", \"year\": 1, \"genre\": \"G\","
+            + " \"description\": \"D\", \"duration\": 1, \"imdbRating\": 1.0},"
+            + "42,"
+            + VALID.replace("\"id\": 1", "\"id\": 5").replace("\"year\": 1994", "\"year\": 1994, \"extra\": {\"nested\": [1, 2]}")
+            + "]";
+        List<Movie> movies = new ArrayList<>();
+        MovieCatalogLoader.Result result = MovieCatalogLoader.load(
+            new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), movies::add);
+
+        assertEquals(2, result.getLoaded());
+        assertEquals(3, result.getSkipped());
+        assertEquals(1L, movies.get(0).getId());
+        assertEquals(5L, movies.get(1).getId());
+    }
+
+    @Test
+    public void testNestedValuesInNumericFieldsAreSkippedWhole() throws Exception {
+        String json = "["
+            + VALID.replace("\"year\": 1994", "\"year\": [{\"id\": 99, \"movieName\": \"Phantom\"}, 3]") + ","
+            + VALID.replace("\"id\": 1", "\"id\": {\"movieName\": \"Inner\", \"year\": [1]}") + ","
+            + VALID.replace("\"id\": 1", "\"id\": 3")
+            + "]";
+        List<Movie> movies = new ArrayList<>();
+        MovieCatalogLoader.Result result = MovieCatalogLoader.load(
+            new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), movies::add);
+
+        assertEquals(1, result.getLoaded());
+        assertEquals(2, result.getSkipped());
+        assertEquals(3L, movies.get(0).getId());
+        assertEquals("Alpha", movies.get(0).getMovieName());
+    }
+
+    @Test
+    public void testLoadFromMappedFile() throws Exception {
+        Path file = tempDir.resolve("movies.json");
+        Files.write(file, ("[" + VALID + "]").getBytes(StandardCharsets.UTF_8));
+        List<Movie> movies = new ArrayList<>();
+        MovieCatalogLoader.load(file, movies::add);
+
+        assertEquals(1, movies.size());
+        assertEquals("Alpha", movies.get(0).getMovieName());
+        assertEquals(4.5, movies.get(0).getImdbRating());
+    }
+
+    @Test
+    public void testBundledCatalogLoads() {
+        List<Movie> movies = new MovieService().getAllMovies();
+        assertEquals(12, movies.size());
+        assertEquals("🔒", movies.get(0).getIcon());
+    }
+
+    @Test
+    public void testIconIsOptional() throws Exception {
+        String json = "[" + VALID + "," + VALID.replace("\"id\": 1", "\"id\": 2").replace("}", ", \"icon\": \"🚀\"}") + "]";
+        List<Movie> movies = new ArrayList<>();
+        MovieCatalogLoader.load(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), movies::add);
+
+        assertEquals(Movie.DEFAULT_ICON, movies.get(0).getIcon());
+        assertEquals("🚀", movies.get(1).getIcon());
+    }
+}
@@ -0,0 +1,145 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MovieIndexTest {
+
+    private MovieIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new MovieIndex(new MovieListColumns(Arrays.asList(
+            new Movie(1L, "Alpha", "Ann Director", 1994, "Drama", "A", 142, 5.0),
+            new Movie(2L, "Bravo", "Bob Director", 1972, "Crime/Drama", "B", 175, 4.5),
+            new Movie(3L, "Charlie", "Ann Director", 2008, "Action/Crime", "C", 152, 4.0),
+            new Movie(4L, "Delta", "Cat Director", 2010, "Sci-Fi", "D", 148, 4.5)
+        )));
+    }
+
+    private List<Movie> find(MovieQuery query) {
+        return index.findPage(query, -1, 100);
+    }
+
+    private static List<Long> ids(List<Movie> movies) {
+        return movies.stream().map(Movie::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testCompoundGenresAreSplit() {
+        MovieQuery query = new MovieQuery();
+        query.setGenre("drama");
+        assertEquals(Arrays.asList(1L, 2L), ids(find(query)));
+        assertEquals(Arrays.asList("Action", "Crime", "Drama", "Sci-Fi"), index.getGenres());
+    }
+
+    @Test
+    public void testCombinedPredicates() {
+        MovieQuery query = new MovieQuery();
+        query.setGenre("Crime");
+        query.setMinYear(1990);
+        query.setDirector("ann director");
+        assertEquals(Arrays.asList(3L), ids(find(query)));
+    }
+
+    @Test
+    public void testRangesAreInclusive() {
+        MovieQuery query = new MovieQuery();
+        query.setMinDuration(148);
+        query.setMaxDuration(152);
+        assertEquals(Arrays.asList(3L, 4L), ids(find(query)));
+    }
+
+    @Test
+    public void testSortByRatingKeepsCatalogOrderForTies() {
+        MovieQuery query = new MovieQuery();
+        query.setSort("rating");
+        assertEquals(Arrays.asList(1L, 2L, 4L, 3L), ids(find(query)));
+    }
+
+    @Test
+    public void testUnknownGenreMatchesNothing() {
+        MovieQuery query = new MovieQuery();
+        query.setGenre("Western");
+        assertTrue(find(query).isEmpty());
+    }
+
+    @Test
+    public void testPagesFollowTheQueryOrder() {
+        MovieQuery query = new MovieQuery();
+        query.setSort("rating");
+        assertEquals(Arrays.asList(1L, 2L), ids(index.findPage(query, -1, 2)));
+        // Movie 2 is at catalog position 1
+        assertEquals(Arrays.asList(4L, 3L), ids(index.findPage(query, 1, 2)));
+        assertTrue(index.findPage(query, 2, 2).isEmpty());
+
+        query.setSort(null);
+        query.setGenre("Crime");
+        assertEquals(Arrays.asList(2L), ids(index.findPage(query, -1, 1)));
+        assertEquals(Arrays.asList(3L), ids(index.findPage(query, 1, 5)));
+    }
+
+    @Test
+    public void testPagesOfSparseMatchesEqualAFullScan() {
+        Random random = new Random(7);
+        String[] genres = {"Drama", "Crime/Drama", "Action", "Sci-Fi"};
+        List<Movie> movies = new ArrayList<>();
+        for (long id = 1; id <= 500; id++) {
+            // Director 0 is rare, so it selects far fewer movies than the other predicates
+            int director = random.nextInt(50) == 0 ? 0 : 1 + random.nextInt(3);
+            movies.add(new Movie(id, "Movie " + random.nextInt(100), "Director " + director, 1950 + random.nextInt(70),
+                genres[random.nextInt(genres.length)], "", 80 + random.nextInt(100), random.nextInt(11) / 2.0));
+        }
+        MovieIndex large = new MovieIndex(new MovieListColumns(movies));
+        Comparator<Movie> byName = Comparator.comparing(Movie::getMovieName, String.CASE_INSENSITIVE_ORDER);
+
+        for (String sort : new String[] {null, "rating", "year", "duration", "name"}) {
+            for (int filters = 0; filters < 4; filters++) {
+                MovieQuery query = new MovieQuery();
+                query.setSort(sort);
+                query.setGenre(filters == 0 || filters == 3 ? "drama" : null);
+                query.setDirector(filters == 1 || filters == 3 ? "director 0" : null);
+                query.setMinYear(filters == 2 ? 2015 : null);
+                query.setMinRating(filters == 2 ? 4.5 : null);
+
+                List<Movie> expected = new ArrayList<>();
+                for (Movie movie : movies) {
+                    if ((query.getGenre() == null || movie.getGenre().contains("Drama"))
+                        && (query.getDirector() == null || movie.getDirector().equals("Director 0"))
+                        && (query.getMinYear() == null || movie.getYear() >= query.getMinYear())
+                        && (query.getMinRating() == null || movie.getImdbRating() >= query.getMinRating())) {
+                        expected.add(movie);
+                    }
+                }
+                if ("rating".equals(sort)) {
+                    expected.sort(Comparator.comparingDouble(Movie::getImdbRating).reversed());
+                } else if ("year".equals(sort)) {
+                    expected.sort(Comparator.comparingInt(Movie::getYear).reversed());
+                } else if ("duration".equals(sort)) {
+                    expected.sort(Comparator.comparingInt(Movie::getDuration));
+                } else if ("name".equals(sort)) {
+                    expected.sort(byName);
+                }
+
+                List<Movie> paged = new ArrayList<>();
+                int after = -1;
+                List<Movie> page;
+                while (!(page = large.findPage(query, after, 7)).isEmpty()) {
+                    paged.addAll(page);
+                    after = (int) page.get(page.size() - 1).getId() - 1;
+                }
+                assertEquals(ids(expected), ids(paged), "sort " + sort + ", filters " + filters);
+            }
+        }
+    }
+}
@@ -2,10 +2,39 @@ package com.amazonaws.samples.qdevmovies.movies;
 
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
 public class MovieTest {
 
 	@Test
 	public void contextLoads() {
 	}
 
+	@Test
+	public void testDisplayFieldsAreDerivedOnce() {
+		Movie movie = new Movie(1L, "Alpha", "Ann", 1994, "Drama", "First", 142, 3.5, "🚀");
+		assertEquals("🚀", movie.getIcon());
+		assertEquals("★★★⭐☆", movie.getStars());
+		assertEquals("3.5", movie.getRatingText());
+
+		Movie other = new Movie(2L, "Bravo", "Ann", 1994, "Drama", "Second", 90, 3.5);
+		assertEquals(Movie.DEFAULT_ICON, other.getIcon());
+		// Display strings come from shared tables, not per movie
+		assertSame(movie.getStars(), other.getStars());
+		assertSame(movie.getRatingText(), other.getRatingText());
+		// Reviews show their rating from the same tables
+		Review review = new Review("Alice", "👩", 3.5, "Fine");
+		assertSame(movie.getStars(), review.getStars());
+		assertSame(movie.getRatingText(), review.getRatingText());
+	}
+
+	@Test
+	public void testStarsForUnevenRatings() {
+		assertEquals("★★★★☆", new Movie(1L, "A", "D", 2000, "G", "D", 90, 4.3).getStars());
+		assertEquals("★★★★★", new Movie(1L, "A", "D", 2000, "G", "D", 90, 5.0).getStars());
+		assertEquals("☆☆☆☆☆", new Movie(1L, "A", "D", 2000, "G", "D", 90, 0.0).getStars());
+		assertEquals("4.3", new Movie(1L, "A", "D", 2000, "G", "D", 90, 4.25001).getRatingText());
+	}
+
 }
@@ -0,0 +1,137 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.EnumSet;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class MoviesApiControllerTest {
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        MoviesApiController controller = new MoviesApiController(new ObjectMapper());
+        ReviewService reviewService = new ReviewService();
+
+        java.lang.reflect.Field movieServiceField = MoviesApiController.class.getDeclaredField("movieService");
+        movieServiceField.setAccessible(true);
+        movieServiceField.set(controller, new MovieService());
+
+        java.lang.reflect.Field reviewIndexField = MoviesApiController.class.getDeclaredField("reviewIndex");
+        reviewIndexField.setAccessible(true);
+        reviewIndexField.set(controller, new ReviewIndex(reviewService, new SessionUserReviewStore()));
+
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    /**
+     * Performs a request and waits for its streamed body.
+     */
+    private ResultActions perform(String url) throws Exception {
+        MvcResult result = mockMvc.perform(get(url)).andExpect(request().asyncStarted()).andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+
+    @Test
+    public void testFieldSelection() throws Exception {
+        perform("/api/movies/1?fields=movieName,year")
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.movieName").value("The Prison Escape"))
+            .andExpect(jsonPath("$.year").value(1994))
+            .andExpect(jsonPath("$.id").doesNotExist())
+            .andExpect(jsonPath("$.director").doesNotExist());
+        perform("/api/movies/1")
+            .andExpect(jsonPath("$.id").value(1))
+            .andExpect(jsonPath("$.imdbRating").exists());
+    }
+
+    @Test
+    public void testParseFields() {
+        assertEquals(EnumSet.allOf(MoviesApiController.MovieField.class), MoviesApiController.parseFields(null));
+        assertEquals(EnumSet.of(MoviesApiController.MovieField.MOVIE_NAME, MoviesApiController.MovieField.IMDB_RATING),
+            MoviesApiController.parseFields("imdbRating,movieName"));
+        // Fields are named as in the JSON, not as the constants
+        assertNull(MoviesApiController.parseFields("MOVIE_NAME"));
+        assertNull(MoviesApiController.parseFields("movieName,budget"));
+    }
+
+    @Test
+    public void testParseCursor() {
+        assertEquals(Long.valueOf(0), MoviesApiController.parseCursor(null));
+        assertEquals(Long.valueOf(0), MoviesApiController.parseCursor(""));
+        assertEquals(Long.valueOf(42), MoviesApiController.parseCursor("42"));
+        assertNull(MoviesApiController.parseCursor("-1"));
+        assertNull(MoviesApiController.parseCursor("abc"));
+        assertNull(MoviesApiController.parseCursor("99999999999999999999"));
+    }
+
+    @Test
+    public void testCursorPaging() throws Exception {
+        perform("/api/movies?limit=5&fields=id")
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.movies", hasSize(5)))
+            .andExpect(jsonPath("$.movies[4].id").value(5))
+            .andExpect(jsonPath("$.nextCursor").value("5"));
+        perform("/api/movies?limit=500&cursor=5&fields=id")
+            .andExpect(jsonPath("$.movies", hasSize(7)))
+            .andExpect(jsonPath("$.movies[0].id").value(6))
+            .andExpect(jsonPath("$.nextCursor").isEmpty());
+    }
+
+    @Test
+    public void testReviewPaging() throws Exception {
+        perform("/api/movies/1/reviews?limit=1")
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.reviews", hasSize(1)))
+            .andExpect(jsonPath("$.nextCursor").value("0"))
+            .andExpect(jsonPath("$.total").isNumber());
+    }
+
+    @Test
+    public void testInvalidParametersAreRejectedWithAMessage() throws Exception {
+        perform("/api/movies?limit=0")
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.status").value(400))
+            .andExpect(jsonPath("$.error").value("limit must be between 1 and 500"));
+        perform("/api/movies?limit=501").andExpect(status().isBadRequest());
+        perform("/api/movies?cursor=abc")
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error").value("Invalid cursor: abc"));
+        perform("/api/movies?fields=budget")
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error").value("Unknown field in fields: budget"));
+        perform("/api/movies/1/reviews?sort=worst")
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error").value("Unknown sort: worst"));
+        perform("/api/movies/1/reviews?cursor=99999999999").andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testUnknownMovieIsNotFound() throws Exception {
+        perform("/api/movies/999")
+            .andExpect(status().isNotFound())
+            .andExpect(jsonPath("$.error").value("Movie not found: 999"));
+        perform("/api/movies/999/reviews").andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testReviewsDoNotCreateASession() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/movies/1/reviews")).andReturn();
+        assertNull(result.getRequest().getSession(false));
+    }
+}
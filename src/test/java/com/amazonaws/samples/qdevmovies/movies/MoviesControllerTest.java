@@ -2,6 +2,8 @@ package com.amazonaws.samples.qdevmovies.movies;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
 import org.springframework.ui.Model;
 import org.springframework.ui.ExtendedModelMap;
 
@@ -12,6 +14,8 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class MoviesControllerTest {
 
@@ -54,9 +58,23 @@ public class MoviesControllerTest {
             movieServiceField.setAccessible(true);
             movieServiceField.set(moviesController, mockMovieService);
             
-            java.lang.reflect.Field reviewServiceField = MoviesController.class.getDeclaredField("reviewService");
-            reviewServiceField.setAccessible(true);
-            reviewServiceField.set(moviesController, mockReviewService);
+            java.lang.reflect.Field userReviewStoreField = MoviesController.class.getDeclaredField("userReviewStore");
+            userReviewStoreField.setAccessible(true);
+            UserReviewStore userReviewStore = new SessionUserReviewStore();
+            userReviewStoreField.set(moviesController, userReviewStore);
+            
+            java.lang.reflect.Field ratingServiceField = MoviesController.class.getDeclaredField("ratingService");
+            ratingServiceField.setAccessible(true);
+            ratingServiceField.set(moviesController, new RatingService(mockMovieService, mockReviewService, userReviewStore));
+
+            java.lang.reflect.Field recommendationServiceField = MoviesController.class.getDeclaredField("recommendationService");
+            recommendationServiceField.setAccessible(true);
+            recommendationServiceField.set(moviesController, new RecommendationService(mockMovieService, mockReviewService,
+                userReviewStore, new RenderedPageCache(10, 1 << 20), 6));
+
+            java.lang.reflect.Field reviewIndexField = MoviesController.class.getDeclaredField("reviewIndex");
+            reviewIndexField.setAccessible(true);
+            reviewIndexField.set(moviesController, new ReviewIndex(mockReviewService, userReviewStore));
         } catch (Exception e) {
             throw new RuntimeException("Failed to inject mock services", e);
         }
@@ -64,21 +82,45 @@ public class MoviesControllerTest {
 
     @Test
     public void testGetMovies() {
-        String result = moviesController.getMovies(model);
+        String result = moviesController.getMovies(new MovieQuery(), model);
         assertNotNull(result);
         assertEquals("movies", result);
     }
 
+    @Test
+    public void testMoviesArePaged() throws Exception {
+        java.lang.reflect.Field pageSizeField = MoviesController.class.getDeclaredField("pageSize");
+        pageSizeField.setAccessible(true);
+        pageSizeField.set(moviesController, 5);
+
+        MovieQuery query = new MovieQuery();
+        query.setSort("name");
+        moviesController.getMovies(query, model);
+        List<?> firstPage = (List<?>) model.asMap().get("movies");
+        assertEquals(5, firstPage.size());
+        String nextUrl = (String) model.asMap().get("nextFragmentUrl");
+        long after = ((Movie) firstPage.get(4)).getId();
+        assertEquals("/movies/page?sort=name&after=" + after, nextUrl);
+
+        query.setAfter(after);
+        Model nextModel = new ExtendedModelMap();
+        assertEquals("movies :: cards", moviesController.getMoviesPage(query, nextModel));
+        List<?> secondPage = (List<?>) nextModel.asMap().get("movies");
+        assertEquals(5, secondPage.size());
+        assertTrue(((Movie) secondPage.get(0)).getMovieName()
+            .compareToIgnoreCase(((Movie) firstPage.get(4)).getMovieName()) > 0);
+    }
+
     @Test
     public void testGetMovieDetails() {
-        String result = moviesController.getMovieDetails(1L, model, null, null);
+        String result = moviesController.getMovieDetails(1L, null, null, model, null);
         assertNotNull(result);
         assertEquals("movie-details", result);
     }
 
     @Test
     public void testGetMovieDetailsNotFound() {
-        String result = moviesController.getMovieDetails(999L, model, null, null);
+        String result = moviesController.getMovieDetails(999L, null, null, model, null);
         assertNotNull(result);
         assertEquals("error", result);
     }
@@ -89,4 +131,16 @@ public class MoviesControllerTest {
         assertEquals(1, movies.size());
         assertEquals("Test Movie", movies.get(0).getMovieName());
     }
+
+    @Test
+    public void testSessionUserDoesNotCreateASession() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        assertNull(moviesController.getSessionUser(request).get("userName"));
+        assertNull(request.getSession(false));
+
+        MockHttpSession session = new MockHttpSession();
+        UserSession.getOrCreate(session).setUserName("Alice");
+        request.setSession(session);
+        assertEquals("Alice", moviesController.getSessionUser(request).get("userName"));
+    }
 }
@@ -0,0 +1,39 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mock.web.MockHttpSession;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MoviesMetricsTest {
+
+    @Test
+    public void testReviewAndCacheMeters() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RenderedPageCache pageCache = new RenderedPageCache(10, 1 << 20);
+        SessionUserReviewStore store = new SessionUserReviewStore();
+        MoviesMetrics metrics = new MoviesMetrics(registry, new MovieService(), pageCache, store,
+            new ReviewAdmission(10, 5, 100, 64, System::nanoTime), new StaticListableBeanFactory().getBeanProvider(CatalogReloader.class));
+
+        metrics.reviewAdded();
+        metrics.reviewRejected(ReviewValidator.reasonOf("Review must be at least 5 words"));
+        metrics.reviewRejected("word_count");
+        pageCache.get("/movies");
+        pageCache.put("/movies", new RenderedPageCache.Page("/movies", new byte[10], "text/html", "\"e\""),
+            pageCache.beginRender());
+        pageCache.get("/movies");
+        Review review = new Review("Alice", "👩", 4.0, "A fine film to watch");
+        store.addReview(1L, review, new MockHttpSession());
+
+        assertEquals(1.0, registry.get("movies.reviews.added").counter().count());
+        assertEquals(2.0, registry.get("movies.reviews.rejected").tag("reason", "word_count").counter().count());
+        assertEquals(1.0, registry.get("movies.page.cache.requests").tag("result", "hit").functionCounter().count());
+        assertEquals(0.5, registry.get("movies.page.cache.hit.ratio").gauge().value());
+        assertEquals(12.0, registry.get("movies.catalog.movies").gauge().value());
+        assertEquals(1.0, registry.get("movies.session.reviews.stored").functionCounter().count());
+        assertEquals(SessionUserReviewStore.estimateBytes(review),
+            registry.get("movies.session.reviews.added.bytes").functionCounter().count());
+    }
+}
@@ -0,0 +1,64 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RatingServiceTest {
+
+    private static final MovieService NO_MOVIES = new MovieService(new ArrayList<>());
+
+    @Test
+    public void testSeededFromMockReviews() {
+        ReviewService reviewService = new ReviewService();
+        RatingService ratingService = new RatingService(NO_MOVIES, reviewService, new SessionUserReviewStore());
+        List<Review> reviews = reviewService.getReviewsForMovie(1L);
+        RatingSummary summary = ratingService.getRatingSummary(1L);
+        assertEquals(reviews.size(), summary.getCount());
+        double total = 0;
+        for (Review review : reviews) {
+            total += review.getRating();
+        }
+        assertEquals(total / reviews.size(), summary.getAverage(), 1e-9);
+        assertEquals(0, ratingService.getRatingSummary(999L).getCount());
+    }
+
+    @Test
+    public void testConcurrentRecordReview() throws Exception {
+        RatingService ratingService = new RatingService(NO_MOVIES, new ReviewService(), new SessionUserReviewStore());
+        int threads = 8;
+        int reviewsPerThread = 10_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            double rating = t % 2 == 0 ? 5.0 : 1.0;
+            Thread writer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < reviewsPerThread; i++) {
+                    ratingService.recordReview(42L, rating);
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        RatingSummary summary = ratingService.getRatingSummary(42L);
+        assertEquals(threads * reviewsPerThread, summary.getCount());
+        assertEquals(3.0, summary.getAverage());
+        long half = threads / 2 * (long) reviewsPerThread;
+        assertArrayEquals(new long[] {half, 0, 0, 0, half}, summary.getHistogram());
+    }
+}
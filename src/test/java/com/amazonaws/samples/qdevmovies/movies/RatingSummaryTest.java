@@ -0,0 +1,45 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RatingSummaryTest {
+
+    @Test
+    public void testEmptySummary() {
+        RatingSummary summary = new RatingSummary();
+        assertEquals(0, summary.getCount());
+        assertEquals(0.0, summary.getAverage());
+        assertEquals("0.0", summary.getAverageText());
+        assertArrayEquals(new long[5], summary.getHistogram());
+    }
+
+    @Test
+    public void testHistogramRoundsToNearestStar() {
+        RatingSummary summary = new RatingSummary();
+        summary.record(5.0);
+        summary.record(4.5);
+        summary.record(4.4);
+        summary.record(2.5);
+        // Out of range ratings land in the first and last buckets
+        summary.record(0.0);
+        summary.record(6.0);
+        assertArrayEquals(new long[] {1, 0, 1, 1, 3}, summary.getHistogram());
+        assertEquals(6, summary.getCount());
+    }
+
+    @Test
+    public void testAverageIsExactInHalfStars() {
+        RatingSummary summary = new RatingSummary();
+        summary.record(4.5);
+        summary.record(3.0);
+        assertEquals(3.75, summary.getAverage());
+        assertEquals("3.8", summary.getAverageText());
+
+        // Ratings are kept to the nearest half star
+        summary.record(4.3);
+        assertEquals(4.0, summary.getAverage());
+    }
+}
@@ -0,0 +1,99 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RecommendationServiceTest {
+
+    private final MovieService movieService = new MovieService(Arrays.asList(
+        new Movie(1L, "Alpha", "Xavier", 2000, "Drama", "First.", 100, 4.0),
+        new Movie(2L, "Bravo", "Xavier", 1990, "Comedy", "Second.", 100, 4.0),
+        new Movie(3L, "Charlie", "Yolanda", 2001, "Drama", "Third.", 100, 4.0),
+        new Movie(4L, "Delta", "Zed", 2005, "Crime/Drama", "Fourth.", 100, 4.0),
+        new Movie(5L, "Echo", "Walt", 1950, "Western", "Fifth.", 100, 4.0)
+    ));
+
+    private RecommendationService recommendations(Map<Long, List<Review>> reviews, RenderedPageCache pageCache, int k) {
+        return new RecommendationService(movieService, new ReviewService(reviews), new SessionUserReviewStore(), pageCache, k);
+    }
+
+    private static List<Long> ids(List<Movie> movies) {
+        List<Long> ids = new ArrayList<>();
+        for (Movie movie : movies) {
+            ids.add(movie.getId());
+        }
+        return ids;
+    }
+
+    private static Review review(String userName) {
+        return new Review(userName, "👩", 4.0, "Enjoyed it from start to end");
+    }
+
+    @Test
+    public void testDirectorOutweighsGenre() {
+        RecommendationService service = recommendations(Collections.emptyMap(), new RenderedPageCache(10, 1 << 20), 6);
+        assertEquals(Arrays.asList(2L, 3L, 4L), ids(service.getRecommendations(1L)));
+        assertEquals(Arrays.asList(1L), ids(service.getRecommendations(2L)));
+        assertTrue(service.getRecommendations(5L).isEmpty());
+        assertTrue(service.getRecommendations(42L).isEmpty());
+    }
+
+    @Test
+    public void testListsAreCappedAtK() {
+        RecommendationService service = recommendations(Collections.emptyMap(), new RenderedPageCache(10, 1 << 20), 2);
+        assertEquals(Arrays.asList(2L, 3L), ids(service.getRecommendations(1L)));
+    }
+
+    @Test
+    public void testSharedReviewersOutweighAttributes() {
+        Map<Long, List<Review>> reviews = new HashMap<>();
+        reviews.put(1L, Arrays.asList(review("Sam"), review("Kim")));
+        reviews.put(5L, Arrays.asList(review("sam "), review("Kim")));
+        RecommendationService service = recommendations(reviews, new RenderedPageCache(10, 1 << 20), 6);
+        assertEquals(Arrays.asList(5L, 2L, 3L, 4L), ids(service.getRecommendations(1L)));
+        assertEquals(Arrays.asList(1L), ids(service.getRecommendations(5L)));
+    }
+
+    @Test
+    public void testAddedReviewsUpdateRecommendations() throws Exception {
+        RenderedPageCache pageCache = new RenderedPageCache(10, 1 << 20);
+        RecommendationService service = recommendations(Collections.emptyMap(), pageCache, 6);
+        pageCache.put("/movies/3/details",
+            new RenderedPageCache.Page("/movies/3/details", new byte[10], "text/html", "\"e\""), pageCache.beginRender());
+
+        service.addReview(3L, review("Sam"));
+        service.addReview(5L, review("Sam"));
+        // The same user reviewing a movie again changes nothing
+        service.addReview(5L, review("Sam"));
+        service.awaitUpdates();
+
+        assertEquals(Arrays.asList(5L, 1L, 4L), ids(service.getRecommendations(3L)));
+        assertEquals(Arrays.asList(3L), ids(service.getRecommendations(5L)));
+        assertEquals(0L, pageCache.getStats().get("entries"));
+    }
+
+    @Test
+    public void testManyPartnersAreCountedPerPair() {
+        List<Movie> movies = new ArrayList<>();
+        Map<Long, List<Review>> reviews = new HashMap<>();
+        for (long id = 1; id <= 40; id++) {
+            movies.add(new Movie(id, "Movie " + id, "Director " + id, 1900 + (int) id, "Genre " + id, "", 100, 4.0));
+            reviews.put(id, new ArrayList<>(Collections.singletonList(review("Sam"))));
+        }
+        reviews.get(20L).add(review("Kim"));
+        reviews.get(30L).add(review("Kim"));
+        RecommendationService service = new RecommendationService(new MovieService(movies), new ReviewService(reviews),
+            new SessionUserReviewStore(), new RenderedPageCache(10, 1 << 20), 4);
+        // Movie 30 shares both its reviewers with movie 20, the others one of two; ties go to the closest year
+        assertEquals(Arrays.asList(30L, 19L, 21L, 18L), ids(service.getRecommendations(20L)));
+    }
+}
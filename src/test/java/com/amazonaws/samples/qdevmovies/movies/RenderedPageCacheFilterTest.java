@@ -0,0 +1,95 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class RenderedPageCacheFilterTest {
+
+    @org.springframework.stereotype.Controller
+    static class PageController {
+        final AtomicInteger renders = new AtomicInteger();
+
+        @GetMapping(value = "/movies", produces = MediaType.TEXT_HTML_VALUE)
+        @ResponseBody
+        String movies() {
+            return "<html>movies " + renders.incrementAndGet() + "</html>";
+        }
+    }
+
+    private PageController controller;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        RenderedPageCacheFilter filter = new RenderedPageCacheFilter("log");
+        java.lang.reflect.Field pageCacheField = RenderedPageCacheFilter.class.getDeclaredField("pageCache");
+        pageCacheField.setAccessible(true);
+        pageCacheField.set(filter, new RenderedPageCache(100, 1 << 20));
+        controller = new PageController();
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).addFilters(filter).build();
+    }
+
+    @Test
+    public void testCachedPageIsRevalidatedWithEtag() throws Exception {
+        String etag = mockMvc.perform(get("/movies"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/movies"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", etag))
+            .andExpect(content().string("<html>movies 1</html>"));
+        mockMvc.perform(get("/movies").header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string("ETag", etag))
+            .andExpect(content().string(""));
+        mockMvc.perform(get("/movies").header("If-None-Match", "\"stale\""))
+            .andExpect(status().isOk())
+            .andExpect(content().string("<html>movies 1</html>"));
+        assertEquals(1, controller.renders.get());
+    }
+
+    @Test
+    public void testEquivalentQueriesShareAnEntry() throws Exception {
+        mockMvc.perform(get("/movies?genre=Drama&minYear=1990&sort=rating"));
+        mockMvc.perform(get("/movies?sort=rating&minYear=01990&minRating=&genre=Drama&reviewAdded=true"));
+        assertEquals(1, controller.renders.get());
+    }
+
+    @Test
+    public void testUnknownParametersBypassTheCache() throws Exception {
+        mockMvc.perform(get("/movies?junk=1"));
+        mockMvc.perform(get("/movies?junk=1"));
+        mockMvc.perform(get("/movies?sort=nonsense"));
+        mockMvc.perform(get("/movies?sort=rating&sort=year"));
+        assertEquals(4, controller.renders.get());
+    }
+
+    @Test
+    public void testCacheKeyNormalization() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/movies/7/details");
+        request.setParameter("after", "042");
+        request.setParameter("sort", "helpful");
+        request.setParameter("error", "Too short");
+        assertEquals("/movies/7/details?sort=helpful&after=42",
+            RenderedPageCacheFilter.cacheKey(request, "/movies/7/details"));
+
+        request.setParameter("genre", "Drama");
+        assertNull(RenderedPageCacheFilter.cacheKey(request, "/movies/7/details"));
+    }
+}
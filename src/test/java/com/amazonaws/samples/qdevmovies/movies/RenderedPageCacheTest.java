@@ -0,0 +1,61 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class RenderedPageCacheTest {
+
+    private static RenderedPageCache.Page page(String path, int size) {
+        return new RenderedPageCache.Page(path, new byte[size], "text/html", "\"etag\"");
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedBeyondMaxEntries() {
+        RenderedPageCache cache = new RenderedPageCache(2, 1000);
+        cache.put("/movies/1/details", page("/movies/1/details", 10), cache.beginRender());
+        cache.put("/movies/2/details", page("/movies/2/details", 10), cache.beginRender());
+        cache.get("/movies/1/details");
+        cache.put("/movies/3/details", page("/movies/3/details", 10), cache.beginRender());
+
+        assertNotNull(cache.get("/movies/1/details"));
+        assertNull(cache.get("/movies/2/details"));
+        assertEquals(1L, cache.getStats().get("evictions"));
+    }
+
+    @Test
+    public void testEvictsBeyondMaxBytes() {
+        RenderedPageCache cache = new RenderedPageCache(100, 25);
+        cache.put("/movies/1/details", page("/movies/1/details", 10), cache.beginRender());
+        cache.put("/movies/2/details", page("/movies/2/details", 10), cache.beginRender());
+        cache.put("/movies/3/details", page("/movies/3/details", 10), cache.beginRender());
+
+        assertEquals(2L, cache.getStats().get("entries"));
+        assertEquals(20L, cache.getStats().get("bytes"));
+    }
+
+    @Test
+    public void testInvalidateMovieDropsListingAndDetails() {
+        RenderedPageCache cache = new RenderedPageCache(100, 1000);
+        cache.put("/movies", page("/movies", 10), cache.beginRender());
+        cache.put("/movies/1/details?reviewAdded=true", page("/movies/1/details", 10), cache.beginRender());
+        cache.put("/movies/2/details", page("/movies/2/details", 10), cache.beginRender());
+        cache.invalidateMovie(1L);
+
+        assertNull(cache.get("/movies"));
+        assertNull(cache.get("/movies/1/details?reviewAdded=true"));
+        assertNotNull(cache.get("/movies/2/details"));
+    }
+
+    @Test
+    public void testRenderRacingInvalidationIsNotStored() {
+        RenderedPageCache cache = new RenderedPageCache(100, 1000);
+        long renderToken = cache.beginRender();
+        cache.invalidateMovie(1L);
+        cache.put("/movies/1/details", page("/movies/1/details", 10), renderToken);
+
+        assertNull(cache.get("/movies/1/details"));
+    }
+}
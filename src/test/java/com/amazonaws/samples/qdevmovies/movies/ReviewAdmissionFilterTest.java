@@ -0,0 +1,104 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ReviewAdmissionFilterTest {
+
+    @org.springframework.stereotype.Controller
+    static class ReviewController {
+
+        @PostMapping("/movies/{id}/details")
+        @ResponseBody
+        String addReview(@PathVariable long id) {
+            if (id == 0) {
+                throw new IllegalStateException("store failed");
+            }
+            return "added";
+        }
+
+        @GetMapping("/movies/{id}/details")
+        @ResponseBody
+        String details(@PathVariable long id) {
+            return "details";
+        }
+    }
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+    private ReviewAdmission admission;
+    private SimpleMeterRegistry registry;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        // One review at once, then one every six seconds; one submission processed at a time
+        admission = new ReviewAdmission(10, 1, 100, 1, now::get);
+        registry = new SimpleMeterRegistry();
+        MoviesMetrics metrics = new MoviesMetrics(registry, new MovieService(), new RenderedPageCache(10, 1 << 20),
+            new SessionUserReviewStore(), admission, new StaticListableBeanFactory().getBeanProvider(CatalogReloader.class));
+        ReviewAdmissionFilter filter = new ReviewAdmissionFilter();
+        inject(filter, "admission", admission);
+        inject(filter, "metrics", metrics);
+        mockMvc = MockMvcBuilders.standaloneSetup(new ReviewController()).addFilters(filter).build();
+    }
+
+    private static void inject(Object target, String name, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    @Test
+    public void testRateLimitedSubmissionGets429WithRetryAfter() throws Exception {
+        mockMvc.perform(post("/movies/1/details").with(request -> remoteAddr(request, "10.0.0.1")))
+            .andExpect(status().isOk())
+            .andExpect(content().string("added"));
+        mockMvc.perform(post("/movies/1/details").with(request -> remoteAddr(request, "10.0.0.1")))
+            .andExpect(status().isTooManyRequests())
+            .andExpect(header().string("Retry-After", "6"));
+        assertEquals(1.0, registry.get("movies.reviews.rejected").tag("reason", "rate_limited").counter().count());
+
+        // Other clients and other requests are not affected
+        mockMvc.perform(post("/movies/1/details").with(request -> remoteAddr(request, "10.0.0.2")))
+            .andExpect(status().isOk());
+        mockMvc.perform(get("/movies/1/details").with(request -> remoteAddr(request, "10.0.0.1")))
+            .andExpect(status().isOk())
+            .andExpect(content().string("details"));
+        assertEquals(0, admission.getInFlight());
+    }
+
+    @Test
+    public void testFailedSubmissionReleasesItsSlot() throws Exception {
+        assertThrows(Exception.class, () -> mockMvc.perform(post("/movies/0/details")));
+        assertEquals(0, admission.getInFlight());
+
+        // With max-concurrent 1, a leaked slot would turn this into a 429
+        mockMvc.perform(post("/movies/1/details").with(request -> remoteAddr(request, "10.0.0.3")))
+            .andExpect(status().isOk());
+    }
+
+    private static MockHttpServletRequest remoteAddr(MockHttpServletRequest request, String address) {
+        request.setRemoteAddr(address);
+        return request;
+    }
+}
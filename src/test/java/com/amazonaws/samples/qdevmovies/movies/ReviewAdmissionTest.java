@@ -0,0 +1,77 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ReviewAdmissionTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+
+    private void advanceSeconds(long seconds) {
+        now.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+    }
+
+    @Test
+    public void testBurstThenRefillPerClient() {
+        // Two reviews at once, then one every six seconds
+        ReviewAdmission admission = new ReviewAdmission(10, 2, 100, 0, now::get);
+        assertEquals(ReviewAdmission.Result.ADMITTED, admission.tryAdmit("a"));
+        assertEquals(ReviewAdmission.Result.ADMITTED, admission.tryAdmit("a"));
+        assertEquals(ReviewAdmission.Result.RATE_LIMITED, admission.tryAdmit("a"));
+        assertEquals(TimeUnit.SECONDS.toNanos(6), admission.getRetryAfterNanos("a"));
+        assertEquals(ReviewAdmission.Result.ADMITTED, admission.tryAdmit("b"));
+
+        advanceSeconds(5);
+        assertEquals(ReviewAdmission.Result.RATE_LIMITED, admission.tryAdmit("a"));
+        advanceSeconds(1);
+        assertEquals(ReviewAdmission.Result.ADMITTED, admission.tryAdmit("a"));
+        assertEquals(ReviewAdmission.Result.RATE_LIMITED, admission.tryAdmit("a"));
+
+        // An idle client gets its whole burst back, and no more
+        advanceSeconds(60);
+        assertEquals(ReviewAdmission.Result.ADMITTED, admission.tryAdmit("a"));
+        assertEquals(ReviewAdmission.Result.ADMITTED, admission.tryAdmit("a"));
+        assertEquals(ReviewAdmission.Result.RATE_LIMITED, admission.tryAdmit("a"));
+    }
+
+    @Test
+    public void testConcurrentSubmissionsAreLimited() {
+        ReviewAdmission admission = new ReviewAdmission(0, 0, 100, 2, now::get);
+        assertEquals(ReviewAdmission.Result.ADMITTED, admission.tryAdmit("a"));
+        assertEquals(ReviewAdmission.Result.ADMITTED, admission.tryAdmit("b"));
+        assertEquals(ReviewAdmission.Result.OVERLOADED, admission.tryAdmit("c"));
+        assertEquals(2, admission.getInFlight());
+
+        admission.release();
+        assertEquals(ReviewAdmission.Result.ADMITTED, admission.tryAdmit("c"));
+        assertEquals(0, admission.getTrackedClients());
+    }
+
+    @Test
+    public void testRateLimitedSubmissionDoesNotHoldASlot() {
+        ReviewAdmission admission = new ReviewAdmission(1, 1, 100, 1, now::get);
+        assertEquals(ReviewAdmission.Result.ADMITTED, admission.tryAdmit("a"));
+        admission.release();
+        assertEquals(ReviewAdmission.Result.RATE_LIMITED, admission.tryAdmit("a"));
+        assertEquals(0, admission.getInFlight());
+    }
+
+    @Test
+    public void testRefilledClientsAreEvictedBeyondMaxClients() {
+        ReviewAdmission admission = new ReviewAdmission(60, 1, 2, 0, now::get);
+        assertEquals(ReviewAdmission.Result.ADMITTED, admission.tryAdmit("a"));
+        assertEquals(ReviewAdmission.Result.ADMITTED, admission.tryAdmit("b"));
+        // Both buckets are still refilling, so there is no room for another client
+        assertEquals(ReviewAdmission.Result.RATE_LIMITED, admission.tryAdmit("c"));
+        assertEquals(2, admission.getTrackedClients());
+
+        advanceSeconds(2);
+        assertEquals(ReviewAdmission.Result.ADMITTED, admission.tryAdmit("c"));
+        assertEquals(1, admission.getTrackedClients());
+        assertEquals(2, admission.getEvictions());
+    }
+}
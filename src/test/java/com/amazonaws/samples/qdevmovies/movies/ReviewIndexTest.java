@@ -0,0 +1,134 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReviewIndexTest {
+
+    private ReviewIndex index;
+
+    private static Review review(String userName, double rating, String comment) {
+        return new Review(userName, "👩", rating, comment);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        Map<Long, List<Review>> reviews = new HashMap<>();
+        reviews.put(1L, Arrays.asList(
+            review("Ann", 3.0, "Fine film overall"),
+            review("Ben", 5.0, "A masterpiece from start to finish, truly"),
+            review("Cat", 3.0, "Decent enough"),
+            review("Dan", 1.0, "Could not stand it")));
+        index = new ReviewIndex(new ReviewService(reviews), new SessionUserReviewStore());
+    }
+
+    private static List<String> names(ReviewIndex.Page page) {
+        List<String> names = new ArrayList<>();
+        for (Review review : page.getReviews()) {
+            names.add(review.getUserName());
+        }
+        return names;
+    }
+
+    private List<String> allPages(ReviewIndex.Sort sort, int limit, List<Review> sessionReviews) {
+        List<String> names = new ArrayList<>();
+        Integer after = null;
+        do {
+            ReviewIndex.Page page = index.getPage(1L, sort, after, limit, sessionReviews);
+            assertTrue(page.getReviews().size() <= limit);
+            names.addAll(names(page));
+            after = page.getNextCursor();
+        } while (after != null);
+        return names;
+    }
+
+    @Test
+    public void testPagesFollowEachOrder() {
+        List<Review> none = Collections.emptyList();
+        assertEquals(Arrays.asList("Dan", "Cat", "Ben", "Ann"), allPages(ReviewIndex.Sort.newest, 3, none));
+        assertEquals(Arrays.asList("Ann", "Ben", "Cat", "Dan"), allPages(ReviewIndex.Sort.oldest, 3, none));
+        // Equal ratings are newest first
+        assertEquals(Arrays.asList("Ben", "Cat", "Ann", "Dan"), allPages(ReviewIndex.Sort.highest, 1, none));
+        assertEquals(Arrays.asList("Ben", "Dan", "Ann", "Cat"), allPages(ReviewIndex.Sort.helpful, 2, none));
+    }
+
+    @Test
+    public void testLastPageHasNoCursor() {
+        ReviewIndex.Page page = index.getPage(1L, ReviewIndex.Sort.highest, null, 4, Collections.<Review>emptyList());
+        assertEquals(4, page.getReviews().size());
+        assertNull(page.getNextCursor());
+        assertEquals(4, page.getTotal());
+
+        ReviewIndex.Page unknown = index.getPage(1L, ReviewIndex.Sort.highest, 99, 4, Collections.<Review>emptyList());
+        assertTrue(unknown.getReviews().isEmpty());
+        assertTrue(index.getPage(2L, ReviewIndex.Sort.newest, null, 4, Collections.<Review>emptyList()).getReviews().isEmpty());
+    }
+
+    @Test
+    public void testAddedReviewsKeepOrdersAndCursors() {
+        ReviewIndex.Page first = index.getPage(1L, ReviewIndex.Sort.highest, null, 2, Collections.<Review>emptyList());
+        assertEquals(Arrays.asList("Ben", "Cat"), names(first));
+
+        index.addReview(1L, review("Eve", 3.0, "Watched it twice"));
+        index.addReview(1L, review("Fay", 5.0, "Wonderful"));
+
+        // The cursor still continues after Cat; Eve ranks before Cat and is not repeated
+        ReviewIndex.Page next = index.getPage(1L, ReviewIndex.Sort.highest, first.getNextCursor(), 10,
+            Collections.<Review>emptyList());
+        assertEquals(Arrays.asList("Ann", "Dan"), names(next));
+        assertEquals(Arrays.asList("Fay", "Ben", "Eve", "Cat", "Ann", "Dan"),
+            allPages(ReviewIndex.Sort.highest, 4, Collections.<Review>emptyList()));
+        assertEquals(Arrays.asList("Fay", "Eve", "Dan", "Cat", "Ben", "Ann"),
+            allPages(ReviewIndex.Sort.newest, 5, Collections.<Review>emptyList()));
+    }
+
+    @Test
+    public void testSessionReviewsAreMergedPerRequest() {
+        List<Review> session = Collections.singletonList(review("Gus", 4.0, "Really good"));
+        assertEquals(Arrays.asList("Ben", "Gus", "Cat", "Ann", "Dan"), allPages(ReviewIndex.Sort.highest, 2, session));
+        assertEquals(4, index.getPage(1L, ReviewIndex.Sort.newest, null, 10, Collections.<Review>emptyList()).getTotal());
+    }
+
+    @Test
+    public void testSessionReviewsPageLikeStoredOnes() {
+        List<Review> session = Arrays.asList(
+            review("Gus", 3.0, "Good enough for me"),
+            review("Hal", 5.0, "Best"),
+            review("Ivy", 1.0, "Dull and slow film"));
+        List<Review> all = new ArrayList<>(index.getPage(1L, ReviewIndex.Sort.oldest, null, 10,
+            Collections.<Review>emptyList()).getReviews());
+        all.addAll(session);
+        ReviewIndex stored = new ReviewIndex(new ReviewService(Collections.singletonMap(1L, all)), new SessionUserReviewStore());
+
+        for (ReviewIndex.Sort sort : ReviewIndex.Sort.values()) {
+            for (int limit = 1; limit <= 4; limit++) {
+                List<String> expected = new ArrayList<>();
+                Integer after = null;
+                do {
+                    ReviewIndex.Page page = stored.getPage(1L, sort, after, limit, Collections.<Review>emptyList());
+                    expected.addAll(names(page));
+                    after = page.getNextCursor();
+                } while (after != null);
+                assertEquals(expected, allPages(sort, limit, session), sort + ", limit " + limit);
+            }
+        }
+    }
+
+    @Test
+    public void testParseSort() {
+        assertEquals(ReviewIndex.Sort.oldest, ReviewIndex.Sort.parse(null, ReviewIndex.Sort.oldest));
+        assertEquals(ReviewIndex.Sort.helpful, ReviewIndex.Sort.parse("helpful", ReviewIndex.Sort.oldest));
+        assertNull(ReviewIndex.Sort.parse("loudest", ReviewIndex.Sort.oldest));
+    }
+}
@@ -0,0 +1,55 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReviewServiceTest {
+
+    private ReviewService reviewService;
+
+    @BeforeEach
+    public void setUp() {
+        reviewService = new ReviewService();
+    }
+
+    @Test
+    public void testGetReviewsForMovie() {
+        List<Review> reviews = reviewService.getReviewsForMovie(1L);
+        assertFalse(reviews.isEmpty());
+        assertEquals("MovieBuff87", reviews.get(0).getUserName());
+    }
+
+    @Test
+    public void testGetReviewsForMovieReturnsSharedList() {
+        assertSame(reviewService.getReviewsForMovie(1L), reviewService.getReviewsForMovie(1L));
+    }
+
+    @Test
+    public void testGetReviewsForMovieIsUnmodifiable() {
+        List<Review> reviews = reviewService.getReviewsForMovie(1L);
+        assertThrows(UnsupportedOperationException.class, () -> reviews.add(reviews.get(0)));
+    }
+
+    @Test
+    public void testGetReviewsForUnknownMovie() {
+        assertTrue(reviewService.getReviewsForMovie(999L).isEmpty());
+    }
+
+    @Test
+    public void testEmptyMockReviewsFileHasNoReviews(@TempDir Path directory) throws IOException {
+        Path empty = Files.createFile(directory.resolve("mock-reviews.json"));
+        assertTrue(ReviewService.readMockReviews(empty.toString()).isEmpty());
+    }
+}
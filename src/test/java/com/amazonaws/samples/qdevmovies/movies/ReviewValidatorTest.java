@@ -0,0 +1,57 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ReviewValidatorTest {
+
+    private final ReviewValidator validator = new ReviewValidator(100, 3,
+        Arrays.asList("buy now", "spam", "# not a word"));
+
+    private String validate(String comment) {
+        return validator.validate(new ReviewRequest("Alice", 4, comment));
+    }
+
+    @Test
+    public void testWordCount() {
+        assertNull(ReviewValidator.validateReview(new ReviewRequest("Alice", 4, "  one two\tthree\nfour five  ")));
+        assertEquals(ReviewValidator.TOO_FEW_WORDS,
+            ReviewValidator.validateReview(new ReviewRequest("Alice", 4, " one   two three four ")));
+        assertEquals(ReviewValidator.COMMENT_REQUIRED,
+            ReviewValidator.validateReview(new ReviewRequest("Alice", 4, " \t ")));
+        assertEquals(ReviewValidator.USER_NAME_REQUIRED,
+            ReviewValidator.validateReview(new ReviewRequest("  ", 4, "one two three four five")));
+        assertEquals(ReviewValidator.RATING_OUT_OF_RANGE,
+            ReviewValidator.validateReview(new ReviewRequest("Alice", 6, "one two three four five")));
+    }
+
+    @Test
+    public void testMaxLength() {
+        char[] comment = new char[101];
+        Arrays.fill(comment, 'a');
+        String error = validate(new String(comment));
+        assertEquals("Review must be at most 100 characters", error);
+        assertEquals("length", ReviewValidator.reasonOf(error));
+    }
+
+    @Test
+    public void testRepeatedWords() {
+        assertNull(validate("Great great GREAT film with a twist"));
+        assertEquals(ReviewValidator.REPEATED_WORDS, validate("Great great GREAT great film with a twist"));
+        assertNull(validate("great film great film great film great film"));
+    }
+
+    @Test
+    public void testBlockedTermsMatchWholeWordsOnly() {
+        assertEquals(ReviewValidator.BLOCKED_TERM, validate("Watch it and BUY,   now! the soundtrack too"));
+        assertEquals(ReviewValidator.BLOCKED_TERM, validate("This whole film is spam really truly"));
+        assertEquals(ReviewValidator.BLOCKED_TERM, validate("Nothing but spam"));
+        assertEquals(ReviewValidator.BLOCKED_TERM, validate("not a word in sight here"));
+        assertNull(validate("The spammer subplot made me want to buy nowhere"));
+        assertEquals("blocked_term", ReviewValidator.reasonOf(ReviewValidator.BLOCKED_TERM));
+    }
+}
@@ -0,0 +1,65 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SearchIndexTest {
+
+    private SearchIndex searchIndex;
+
+    @BeforeEach
+    public void setUp() {
+        MovieService movieService = new MovieService(Arrays.asList(
+            new Movie(1L, "Dream Heist", "Director", 2010, "Sci-Fi", "A thief steals secrets from dreams.", 148, 4.5),
+            new Movie(2L, "Space Wars", "Director", 1977, "Sci-Fi", "A heist in a galaxy far away.", 121, 4.0)
+        ));
+        searchIndex = new SearchIndex(movieService, new ReviewService() {
+            @Override
+            public java.util.Map<Long, List<Review>> getAllReviews() {
+                return java.util.Collections.emptyMap();
+            }
+        }, new SessionUserReviewStore());
+    }
+
+    @Test
+    public void testNameMatchesRankFirst() {
+        assertEquals(Arrays.asList(1L, 2L), searchIndex.search("heist"));
+    }
+
+    @Test
+    public void testSearchIsCaseInsensitive() {
+        assertEquals(Arrays.asList(2L), searchIndex.search("GALAXY"));
+    }
+
+    @Test
+    public void testPhraseRequiresConsecutiveTerms() {
+        assertEquals(Arrays.asList(2L), searchIndex.search("\"far away\""));
+        assertTrue(searchIndex.search("\"away far\"").isEmpty());
+    }
+
+    @Test
+    public void testAddedReviewsAreSearchable() {
+        assertTrue(searchIndex.search("mindbending").isEmpty());
+        searchIndex.addReview(2L, new Review("Alice", "👩", 5.0, "Truly mindbending space battles"));
+        assertEquals(Arrays.asList(2L), searchIndex.search("mindbending"));
+    }
+
+    @Test
+    public void testBestResultsAreKeptWithTiesByMovieId() {
+        for (long movieId = 200; movieId > 100; movieId--) {
+            searchIndex.addReview(movieId, new Review("Alice", "👩", 5.0, "Popcorn"));
+        }
+        searchIndex.addReview(150L, new Review("Bob", "👨", 5.0, "Popcorn popcorn"));
+        List<Long> results = searchIndex.search("popcorn");
+        assertEquals(SearchIndex.MAX_RESULTS, results.size());
+        assertEquals(Long.valueOf(150), results.get(0));
+        assertEquals(Arrays.asList(101L, 102L, 103L), results.subList(1, 4));
+        assertEquals(Long.valueOf(119), results.get(SearchIndex.MAX_RESULTS - 1));
+    }
+}
@@ -0,0 +1,105 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.ResourceUrlProvider;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class StaticAssetCacheFilterTest {
+
+    /**
+     * The resource chain as configured under spring.web.resources.chain in application.yml.
+     */
+    @Configuration
+    @EnableWebMvc
+    static class ResourceChainConfig implements WebMvcConfigurer {
+
+        @Override
+        public void addResourceHandlers(ResourceHandlerRegistry registry) {
+            registry.addResourceHandler("/**")
+                .addResourceLocations("classpath:/static/")
+                .resourceChain(true)
+                .addResolver(new EncodedResourceResolver())
+                .addResolver(new VersionResourceResolver().addContentVersionStrategy("/css/**", "/js/**"));
+        }
+
+        @Bean
+        StaticAssetCacheFilter staticAssetCacheFilter() {
+            return new StaticAssetCacheFilter();
+        }
+    }
+
+    private AnnotationConfigWebApplicationContext context;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setUp() {
+        context = new AnnotationConfigWebApplicationContext();
+        context.setServletContext(new MockServletContext());
+        context.register(ResourceChainConfig.class);
+        context.refresh();
+        mockMvc = MockMvcBuilders.webAppContextSetup(context)
+            .addFilters(context.getBean(StaticAssetCacheFilter.class))
+            .build();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        context.close();
+    }
+
+    private String fingerprinted(String path) {
+        String url = context.getBean(ResourceUrlProvider.class).getForLookupPath(path);
+        assertNotEquals(path, url);
+        return url;
+    }
+
+    @Test
+    public void testCurrentFingerprintIsImmutable() throws Exception {
+        for (String path : new String[] {"/css/movies.css", "/js/movies.js"}) {
+            mockMvc.perform(get(fingerprinted(path)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", StaticAssetCacheFilter.IMMUTABLE));
+        }
+        mockMvc.perform(get(fingerprinted("/css/movies.css")).header("Accept-Encoding", "gzip"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Encoding", "gzip"))
+            .andExpect(header().string("Cache-Control", StaticAssetCacheFilter.IMMUTABLE));
+    }
+
+    @Test
+    public void testStaleFingerprintIsNotFound() throws Exception {
+        String stale = "/css/movies-0123456789abcdef0123456789abcdef.css";
+        assertNotEquals(stale, fingerprinted("/css/movies.css"));
+
+        mockMvc.perform(get(stale))
+            .andExpect(status().isNotFound())
+            .andExpect(header().doesNotExist("Cache-Control"));
+    }
+
+    @Test
+    public void testPlainUrlKeepsDefaultCaching() throws Exception {
+        mockMvc.perform(get("/css/movies.css"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist("Cache-Control"));
+        mockMvc.perform(get("/js/modal.js"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist("Cache-Control"));
+    }
+}
@@ -0,0 +1,86 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.Avatars;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpSession;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UserSessionTest {
+
+    private static UserSession serializeAndRead(UserSession user) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(user);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (UserSession) in.readObject();
+        }
+    }
+
+    @Test
+    public void testUserWithoutReviewsEncodesInAFewBytes() {
+        UserSession user = new UserSession();
+        user.setUserName("Alice");
+        user.setAvatar(Avatars.codeOf("👩"));
+        // Version, name, avatar and two empty counts
+        assertEquals(1 + 6 + 1 + 1 + 1, user.toBytes().length);
+    }
+
+    @Test
+    public void testReviewsSurviveSerialization() throws Exception {
+        UserSession user = new UserSession();
+        user.setUserName("Bob");
+        user.setAvatar(Avatars.codeOf("🧑"));
+        user.addReview(7L, new Review("Bobby", "🧑", 4.5, "Loved every single minute of it"));
+        user.addReview(3L, new Review("Bob", "🧑", 2.0, "Not my kind of film at all"));
+        user.addReview(7L, new Review("Bob", "🧑", 5.0, "Even better the second time around"));
+        long serialized = UserSession.getSerializations();
+
+        UserSession read = serializeAndRead(user);
+        assertEquals(serialized + 1, UserSession.getSerializations());
+        assertEquals("Bob", read.getUserName());
+        assertEquals("🧑", read.getAvatar());
+        List<Review> reviews = read.getReviews(7L);
+        assertEquals(2, reviews.size());
+        assertEquals("Bobby", reviews.get(0).getUserName());
+        assertEquals(4.5, reviews.get(0).getRating());
+        assertEquals("🧑", reviews.get(0).getAvatarEmoji());
+        assertEquals("Bob", reviews.get(1).getUserName());
+        assertEquals("Even better the second time around", reviews.get(1).getComment());
+        assertEquals(1, read.getReviews(3L).size());
+        assertTrue(read.getReviews(1L).isEmpty());
+    }
+
+    @Test
+    public void testUnknownVersionIsRejected() {
+        byte[] bytes = new UserSession().toBytes();
+        bytes[0] = 99;
+        assertThrows(InvalidObjectException.class, () -> UserSession.fromBytes(bytes));
+        assertThrows(IOException.class, () -> UserSession.fromBytes(new byte[] {1, (byte) 0xFF}));
+    }
+
+    @Test
+    public void testSessionStoreKeepsReviewsInUserSession() {
+        MockHttpSession session = new MockHttpSession();
+        SessionUserReviewStore store = new SessionUserReviewStore();
+        assertTrue(store.getReviews(1L, session).isEmpty());
+        assertNull(UserSession.get(session));
+
+        store.addReview(1L, new Review("Carol", "👵", 3.0, "A pleasant way to spend an evening"), session);
+        assertEquals(1, UserSession.get(session).getReviewCount());
+        assertEquals("Carol", store.getReviews(1L, session).get(0).getUserName());
+        assertTrue(store.getReviews(2L, session).isEmpty());
+    }
+}
@@ -0,0 +1,58 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StaticAssetCompressorTest {
+
+    private static byte[] gunzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testCompressesAssetsThatShrink(@TempDir Path directory) throws IOException {
+        StringBuilder css = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            css.append(".movie-card-").append(i).append(" { color: white; padding: 10px; }\n");
+        }
+        byte[] original = css.toString().getBytes(StandardCharsets.UTF_8);
+        Files.createDirectories(directory.resolve("css"));
+        Files.write(directory.resolve("css/movies.css"), original);
+        Files.write(directory.resolve("tiny.js"), "a()".getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve("notes.txt"), css.toString().getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(1, StaticAssetCompressor.compressAll(directory));
+        byte[] compressed = Files.readAllBytes(directory.resolve("css/movies.css.gz"));
+        assertTrue(compressed.length < original.length / 4);
+        assertArrayEquals(original, gunzip(compressed));
+        assertFalse(Files.exists(directory.resolve("tiny.js.gz")));
+        assertFalse(Files.exists(directory.resolve("notes.txt.gz")));
+    }
+
+    @Test
+    public void testMissingDirectoryCompressesNothing(@TempDir Path directory) throws IOException {
+        assertEquals(0, StaticAssetCompressor.compressAll(directory.resolve("static")));
+    }
+}